@@ -1,5 +1,7 @@
 package redblacktreeproject;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Node element of the red-black tree. Holds a string data within
  *
@@ -10,14 +12,17 @@ public class RedBlackNode {
     /**
      * To indicate that node color is black
      */
-    public static int BLACK = 0;
+    public static final int BLACK = 0;
     /**
      * To indicate that node color is red
      */
-    public static int RED = 1;
-    private String data;
-    private int color;
-    private RedBlackNode parent;
+    public static final int RED = 1;
+    /**
+     * The data encoded in WTF-8, preceded by one byte holding the color. Packing
+     * the color into the data array, and keeping no parent pointer, leaves the
+     * node with just three references
+     */
+    private byte[] key;
     private RedBlackNode leftChild;
     private RedBlackNode rightChild;
 
@@ -26,18 +31,160 @@ public class RedBlackNode {
      *
      * @param data A simple value held in the tree
      * @param color Either RED or BLACK
-     * @param p The parent pointer
      * @param lc The pointer to the left child
      * @param rc The pointer to the right child
      */
-    public RedBlackNode(String data, int color, RedBlackNode p, RedBlackNode lc, RedBlackNode rc) {
-        this.data = data;
-        this.color = color;
-        this.parent = p;
+    public RedBlackNode(String data, int color, RedBlackNode lc, RedBlackNode rc) {
+        this(encode(data), color, lc, rc);
+    }
+
+    /**
+     * Constructor for red-black tree node that takes over data already
+     * encoded with encode()
+     *
+     * @param key Encoded value held in the tree
+     * @param color Either RED or BLACK
+     * @param lc The pointer to the left child
+     * @param rc The pointer to the right child
+     */
+    RedBlackNode(byte[] key, int color, RedBlackNode lc, RedBlackNode rc) {
+        key[0] = (byte) color;
+        this.key = key;
         this.leftChild = lc;
         this.rightChild = rc;
     }
 
+    /**
+     * Encodes data the way it is stored in the node: a spare leading byte for
+     * the color, followed by the data in WTF-8. That is UTF-8, except that an
+     * unpaired surrogate gets its own three byte sequence instead of being
+     * replaced, so that no two strings share an encoding. A search encodes its
+     * value once and compares it against every node on the path<br> Running
+     * Time (both best and worst case): Big Theta(length of data)
+     *
+     * @param data Data to be encoded
+     * @return Encoded data
+     */
+    public static byte[] encode(String data) {
+        int length = data.length();
+        byte[] encoded = new byte[length + 1];
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c >= 0x80) {
+                // Not plain ASCII, so take the general path
+                return encodeWtf8(data);
+            }
+            encoded[i + 1] = (byte) c;
+        }
+        return encoded;
+    }
+
+    /**
+     * Encodes data that is not plain ASCII, in the format of encode()
+     *
+     * @param data Data to be encoded
+     * @return Encoded data
+     */
+    private static byte[] encodeWtf8(String data) {
+        byte[] encoded = new byte[data.length() * 3 + 1];
+        int at = 1;
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                encoded[at++] = (byte) c;
+            } else if (c < 0x800) {
+                encoded[at++] = (byte) (0xc0 | c >> 6);
+                encoded[at++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < data.length() && Character.isLowSurrogate(data.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, data.charAt(++i));
+                encoded[at++] = (byte) (0xf0 | codePoint >> 18);
+                encoded[at++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                encoded[at++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                encoded[at++] = (byte) (0x80 | codePoint & 0x3f);
+            } else {
+                // Also taken by unpaired surrogates
+                encoded[at++] = (byte) (0xe0 | c >> 12);
+                encoded[at++] = (byte) (0x80 | c >> 6 & 0x3f);
+                encoded[at++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        byte[] trimmed = new byte[at];
+        System.arraycopy(encoded, 1, trimmed, 1, at - 1);
+        return trimmed;
+    }
+
+    /**
+     * Decodes the data in a key made by encode()
+     *
+     * @param key The key
+     * @return The data
+     */
+    private static String decode(byte[] key) {
+        return decode(key, 1, key.length - 1);
+    }
+
+    /**
+     * Decodes data in the format of encode(), without the leading byte, from
+     * part of an array<br> Running Time (both best and worst case): Big
+     * Theta(length)
+     *
+     * @param encoded Array holding the encoded data
+     * @param offset Index of the first byte of the data
+     * @param length Number of bytes of the data
+     * @return The data
+     */
+    public static String decode(byte[] encoded, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && encoded[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            return new String(encoded, offset, length, StandardCharsets.US_ASCII);
+        }
+
+        StringBuilder data = new StringBuilder(length);
+        i = offset;
+        while (i < end) {
+            int b = encoded[i] & 0xff;
+            if (b < 0x80) {
+                data.append((char) b);
+                i += 1;
+            } else if (b < 0xe0) {
+                data.append((char) ((b & 0x1f) << 6 | encoded[i + 1] & 0x3f));
+                i += 2;
+            } else if (b < 0xf0) {
+                data.append((char) ((b & 0x0f) << 12 | (encoded[i + 1] & 0x3f) << 6 | encoded[i + 2] & 0x3f));
+                i += 3;
+            } else {
+                data.appendCodePoint((b & 0x07) << 18 | (encoded[i + 1] & 0x3f) << 12 | (encoded[i + 2] & 0x3f) << 6 | encoded[i + 3] & 0x3f);
+                i += 4;
+            }
+        }
+        return data.toString();
+    }
+
+    /**
+     * Compares the data in the node with encoded data. The order is that of
+     * the code points, which matches String.compareTo except that characters
+     * above U+FFFF sort after U+E000 to U+FFFF instead of before them<br> Running Time (worst case): Big
+     * Theta(length of data)
+     *
+     * @param data Data encoded with encode()
+     * @return Negative, zero or positive as the node data is smaller than,
+     * equal to or larger than data
+     */
+    public int compareData(byte[] data) {
+        int length = Math.min(key.length, data.length);
+        for (int i = 1; i < length; i++) {
+            int difference = (key[i] & 0xff) - (data[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return key.length - data.length;
+    }
+
     /**
      * Returns the color of the node<br> Running Time (both best and worst
      * case): Big Theta(1)
@@ -45,17 +192,17 @@ public class RedBlackNode {
      * @return Color of the node
      */
     public int getColor() {
-        return this.color;
+        return this.key[0];
     }
 
     /**
      * Returns the data in the node<br> Running Time (both best and worst case):
-     * Big Theta(1)
+     * Big Theta(length of data)
      *
      * @return Data in the node
      */
     public String getData() {
-        return this.data;
+        return decode(this.key);
     }
 
     /**
@@ -78,24 +225,16 @@ public class RedBlackNode {
         return this.rightChild;
     }
 
-    /**
-     * Returns the parent of the node<br> Running Time (both best and worst
-     * case): Big Theta(1)
-     *
-     * @return Parent of the node
-     */
-    public RedBlackNode getP() {
-        return this.parent;
-    }
-
     /**
      * Sets the data of the node<br> Running Time (both best and worst case):
-     * Big Theta(1)
+     * Big Theta(length of data)
      *
      * @param data Data to be set
      */
     public void setData(String data) {
-        this.data = data;
+        byte[] encoded = encode(data);
+        encoded[0] = this.key[0];
+        this.key = encoded;
     }
 
     /**
@@ -105,7 +244,7 @@ public class RedBlackNode {
      * @param color Color to be set
      */
     public void setColor(int color) {
-        this.color = color;
+        this.key[0] = (byte) color;
     }
 
     /**
@@ -128,16 +267,6 @@ public class RedBlackNode {
         this.rightChild = rc;
     }
 
-    /**
-     * Sets the parent of the node<br> Running Time (both best and worst case):
-     * Big Theta(1)
-     *
-     * @param p Parent to be set
-     */
-    public void setP(RedBlackNode p) {
-        this.parent = p;
-    }
-
     /**
      * Returns a String representation of the node contents<br> Running Time
      * (both best and worst case): Big Theta(1)
@@ -147,9 +276,8 @@ public class RedBlackNode {
     @Override
     public String toString() {
         StringBuilder content = new StringBuilder();
-        content.append("[Data: ").append(this.data).append(", Color: ").
-                append(this.color == BLACK ? "Black" : "Red").append(", Parent: ").
-                append(this.parent.getData()).append(", Left Child: ").
+        content.append("[Data: ").append(getData()).append(", Color: ").
+                append(getColor() == BLACK ? "Black" : "Red").append(", Left Child: ").
                 append(this.leftChild.getData()).append(", RightChild: ").
                 append(this.rightChild.getData()).append("]");
         return content.toString();
@@ -7,8 +7,14 @@ package redblacktreeproject;
  */
 public class RedBlackTree {
 
+    /**
+     * Longest path an insertion can walk. The height of a red-black tree is at
+     * most 2 * log(n + 1), so 64 covers any tree an int can count
+     */
+    private static final int MAX_PATH = 64;
     private RedBlackNode root;
-    private RedBlackNode leaf;
+    private final RedBlackNode leaf;
+    private final RedBlackNode[] path;
     private int recentCompares;
     private int numberOfNodes;
 
@@ -17,7 +23,8 @@ public class RedBlackTree {
      */
     public RedBlackTree() {
         // Creates the NULL node which is the common leaf node
-        root = leaf = new RedBlackNode("-1", RedBlackNode.BLACK, null, null, null);
+        root = leaf = new RedBlackNode("-1", RedBlackNode.BLACK, null, null);
+        path = new RedBlackNode[MAX_PATH];
         recentCompares = 0;
         numberOfNodes = 0;
     }
@@ -31,7 +38,7 @@ public class RedBlackTree {
      * @return Data in the tree that is the closest to v
      */
     public String closeBy(String v) {
-        return getCloseNode(root, v);
+        return getCloseNode(root, RedBlackNode.encode(v));
     }
 
     /**
@@ -43,8 +50,39 @@ public class RedBlackTree {
      * @return True if the data is found, false otherwise
      */
     public boolean contains(String v) {
-        recentCompares = 0;
-        return checkForData(root, v);
+        int compares = search(v);
+        recentCompares = Math.abs(compares);
+        return compares > 0;
+    }
+
+    /**
+     * Searches for the String v without recording anything in the tree, so
+     * that several threads can search at once. Returns the number of
+     * comparisons made, negated if v is not in the tree<br> Running Time(best
+     * case): Big Theta(1)<br> Running Time(worst case): Big Theta(log n)<br>
+     *
+     * @param v The value to search for
+     * @return Comparisons made, positive if the data is found and negative
+     * otherwise
+     */
+    public int search(String v) {
+        byte[] data = RedBlackNode.encode(v);
+        RedBlackNode node = this.root;
+        int compares = 0;
+
+        while (true) {
+            compares++;
+            if (node == this.leaf) {
+                // If the node is leaf, then the value hasnt been found
+                return -compares;
+            }
+            int compare = node.compareData(data);
+            if (compare == 0) {
+                return compares;
+            }
+            // Go right if the data in the node is smaller, left otherwise
+            node = compare < 0 ? node.getRc() : node.getLc();
+        }
     }
 
     /**
@@ -87,37 +125,40 @@ public class RedBlackTree {
     }
 
     /**
-     * Inserts the data in the tree<br> Running Time(best case): Big
-     * Theta(1)<br> Running Time(worst case): Big Theta(log n)<br>
+     * Inserts the data in the tree. Nodes keep no parent pointer, so the path
+     * from the root is recorded on the way down and used by the fixup<br>
+     * Running Time(best case): Big Theta(1)<br> Running Time(worst case): Big
+     * Theta(log n)<br>
      *
      * @param value Data to be inserted
      */
     public void insert(String value) {
-        RedBlackNode z = new RedBlackNode(value, RedBlackNode.RED, null, null, null);
-        RedBlackNode y = this.leaf;
+        byte[] data = RedBlackNode.encode(value);
         RedBlackNode x = this.root;
+        int depth = 0;
+        int compare = 0;
 
         while (x != this.leaf) {
-            y = x;
-            if (x.getData().compareTo(value) > 0) {
+            path[depth++] = x;
+            compare = x.compareData(data);
+            if (compare > 0) {
                 x = x.getLc();
             } else {
                 x = x.getRc();
             }
         }
-        z.setP(y);
-        if (y == this.leaf) {
+
+        RedBlackNode z = new RedBlackNode(data, RedBlackNode.RED, this.leaf, this.leaf);
+        if (depth == 0) {
             this.root = z;
+        } else if (compare > 0) {
+            path[depth - 1].setLc(z);
         } else {
-            if (z.getData().compareTo(y.getData()) > 0) {
-                y.setRc(z);
-            } else {
-                y.setLc(z);
-            }
+            path[depth - 1].setRc(z);
         }
-        z.setLc(this.leaf);
-        z.setRc(this.leaf);
-        RBInsertFixup(z);
+        path[depth] = z;
+        RBInsertFixup(depth);
+        numberOfNodes++;
     }
 
     /**
@@ -149,33 +190,14 @@ public class RedBlackTree {
      * balancing the tree<br> Running Time(both best and worst case): Big
      * Theta(1)
      *
-     * @param node Node around which left rotation has to be performed
+     * @param x Node around which left rotation has to be performed
+     * @param p Parent of x, or null if x is the root
      */
-    private void leftRotate(RedBlackNode x) {
-        if (x.getRc() == this.leaf) {
-            return;
-        }
-
-        if (this.root.getP() != this.leaf) {
-            return;
-        }
-
+    private void leftRotate(RedBlackNode x, RedBlackNode p) {
         RedBlackNode y = x.getRc();
         x.setRc(y.getLc());
-        y.getLc().setP(x);
-        y.setP(x.getP());
-
-        if (x.getP() == this.leaf) {
-            this.root = y;
-        } else {
-            if (x.getP().getLc() == x) {
-                x.getP().setLc(y);
-            } else {
-                x.getP().setRc(y);
-            }
-        }
         y.setLc(x);
-        x.setP(y);
+        replaceChild(p, x, y);
     }
 
     /**
@@ -183,76 +205,82 @@ public class RedBlackTree {
      * balancing the tree<br> Running Time(both best and worst case): Big
      * Theta(1)
      *
-     * @param node Node around which right rotation has to be performed
+     * @param x Node around which right rotation has to be performed
+     * @param p Parent of x, or null if x is the root
      */
-    private void rightRotate(RedBlackNode x) {
-        if (x.getLc() == this.leaf) {
-            return;
-        }
-
-        if (this.root.getP() != this.leaf) {
-            return;
-        }
-
+    private void rightRotate(RedBlackNode x, RedBlackNode p) {
         RedBlackNode y = x.getLc();
         x.setLc(y.getRc());
-        y.getRc().setP(x);
-        y.setP(x.getP());
+        y.setRc(x);
+        replaceChild(p, x, y);
+    }
 
-        if (x.getP() == this.leaf) {
+    /**
+     * Makes y take the place of x under x's parent<br> Running Time(both best
+     * and worst case): Big Theta(1)
+     *
+     * @param p Parent of x, or null if x is the root
+     * @param x Node being replaced
+     * @param y Node taking its place
+     */
+    private void replaceChild(RedBlackNode p, RedBlackNode x, RedBlackNode y) {
+        if (p == null) {
             this.root = y;
+        } else if (p.getLc() == x) {
+            p.setLc(y);
         } else {
-            if (x.getP().getLc() == x) {
-                x.getP().setLc(y);
-            } else {
-                x.getP().setRc(y);
-            }
+            p.setRc(y);
         }
-        y.setRc(x);
-        x.setP(y);
     }
 
     /**
-     * Performs fixup so that Red-Black tree properties are preserved<br>
-     * Running Time(best case): Big Theta(1)<br> Running Time(worst case): Big
-     * Theta(log n)<br>
+     * Performs fixup so that Red-Black tree properties are preserved. Walks
+     * back up the path recorded by insert()<br> Running Time(best case): Big
+     * Theta(1)<br> Running Time(worst case): Big Theta(log n)<br>
      *
-     * @param node Current node on which fixup is performed
+     * @param depth Position in the path of the node just inserted
      */
-    private void RBInsertFixup(RedBlackNode z) {
-        RedBlackNode y;
-        while (z.getP().getColor() == RedBlackNode.RED) {
-            if (z.getP().getP().getLc() == z.getP()) {
-                y = z.getP().getP().getRc();
+    private void RBInsertFixup(int depth) {
+        RedBlackNode z, p, g, y;
+        // The root is black, so a red parent always has a parent of its own
+        while (depth >= 2 && path[depth - 1].getColor() == RedBlackNode.RED) {
+            z = path[depth];
+            p = path[depth - 1];
+            g = path[depth - 2];
+            RedBlackNode gp = depth >= 3 ? path[depth - 3] : null;
+            if (g.getLc() == p) {
+                y = g.getRc();
                 if (y.getColor() == RedBlackNode.RED) {
-                    z.getP().setColor(RedBlackNode.BLACK);
+                    p.setColor(RedBlackNode.BLACK);
                     y.setColor(RedBlackNode.BLACK);
-                    z.getP().getP().setColor(RedBlackNode.RED);
-                    z = z.getP().getP();
+                    g.setColor(RedBlackNode.RED);
+                    depth -= 2;
                 } else {
-                    if (z.getP().getRc() == z) {
-                        z = z.getP();
-                        leftRotate(z);
+                    if (p.getRc() == z) {
+                        leftRotate(p, g);
+                        p = z;
                     }
-                    z.getP().setColor(RedBlackNode.BLACK);
-                    z.getP().getP().setColor(RedBlackNode.RED);
-                    rightRotate(z.getP().getP());
+                    p.setColor(RedBlackNode.BLACK);
+                    g.setColor(RedBlackNode.RED);
+                    rightRotate(g, gp);
+                    break;
                 }
             } else {
-                y = z.getP().getP().getLc();
+                y = g.getLc();
                 if (y.getColor() == RedBlackNode.RED) {
-                    z.getP().setColor(RedBlackNode.BLACK);
+                    p.setColor(RedBlackNode.BLACK);
                     y.setColor(RedBlackNode.BLACK);
-                    z.getP().getP().setColor(RedBlackNode.RED);
-                    z = z.getP().getP();
+                    g.setColor(RedBlackNode.RED);
+                    depth -= 2;
                 } else {
-                    if (z.getP().getLc() == z) {
-                        z = z.getP();
-                        rightRotate(z);
+                    if (p.getLc() == z) {
+                        rightRotate(p, g);
+                        p = z;
                     }
-                    z.getP().setColor(RedBlackNode.BLACK);
-                    z.getP().getP().setColor(RedBlackNode.RED);
-                    leftRotate(z.getP().getP());
+                    p.setColor(RedBlackNode.BLACK);
+                    g.setColor(RedBlackNode.RED);
+                    leftRotate(g, gp);
+                    break;
                 }
             }
         }
@@ -293,53 +321,27 @@ public class RedBlackTree {
         return 1 + Math.max(height(node.getLc()), height(node.getRc()));
     }
 
-    /**
-     * Called by contains() to check for the existence of data in the tree. Uses
-     * recursion to find the data in the tree.<br> Running Time(best and worst
-     * case): Big Theta(log n)<br>
-     *
-     * @param node Node being compared
-     * @param data Data that is being searched
-     * @return True/false based on whether data is found or not
-     */
-    private boolean checkForData(RedBlackNode node, String data) {
-        if (node == leaf) {
-            // If the node is leaf, then return false since the value hasnt been found
-            recentCompares++;
-            return false;
-        } else if (node.getData().compareTo(data) == 0) {
-            // The value has been found, so return true
-            recentCompares++;
-            return true;
-        } else if (node.getData().compareTo(data) < 0) {
-            // The data in the node is smaller, so a recursive call to right node.
-            recentCompares++;
-            return checkForData(node.getRc(), data);
-        } else {
-            // The data in the node is larger, so a recursive call to left node.
-            recentCompares++;
-            return checkForData(node.getLc(), data);
-        }
-    }
-
     /**
      * Used by closeBy() to get the closest node. Uses recursion to track the
      * closest node<br> Running Time(best and worst case): Big Theta(log n)<br>
      *
      * @param node Node that is being compared to
-     * @param data Data that is being compared
+     * @param data Encoded data that is being compared
      * @return The closest node if found
      */
-    private String getCloseNode(RedBlackNode node, String data) {
+    private String getCloseNode(RedBlackNode node, byte[] data) {
         String returnData;
 
         if (node == leaf) {
             // If the node is leaf, then return null since the value hasnt been found
             return null;
-        } else if (node.getData().compareTo(data) == 0) {
+        }
+
+        int compare = node.compareData(data);
+        if (compare == 0) {
             // The value has been found, so return the data
             return node.getData();
-        } else if (node.getData().compareTo(data) < 0) {
+        } else if (compare < 0) {
             // The data in the node is smaller, so a recursive call to right node.
             // If the return value is null, it implies the child node was null, 
             // so it will return the current node as the closest value.
@@ -389,5 +391,16 @@ public class RedBlackTree {
         // display the height
         System.out.println("The height is " + rbt.height());
 
+        // measure the heap taken per word, counting the node and its data
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        RedBlackTree words = new RedBlackTree();
+        for (int j = 0; j < 200000; j++) {
+            words.insert("word" + Integer.toString(j * 7919, 36));
+        }
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("Heap per word is " + (after - before) / words.getSize() + " bytes");
     }
 }
@@ -0,0 +1,252 @@
+package spellcheckerproject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import redblacktreeproject.RedBlackTree;
+
+/**
+ * The shared base layer of the dictionary. The word list is loaded once in the
+ * background and is never modified afterwards, so a single instance can be
+ * shared by every tenant
+ *
+ * @author vravuri
+ */
+public class BaseDictionary {
+
+    private static final int LOAD_CHUNK_SIZE = 10000;
+    private final RedBlackTree wordList;
+    private final PhoneticIndex soundAlikes = new PhoneticIndex();
+    private final Object loadLock = new Object();
+    private final ThreadLocal<int[]> recentCompares = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+    private volatile boolean loaded;
+    private IOException loadFailure;
+    private String loadedThrough;
+    private int wordCount;
+
+    /**
+     * Constructor that starts loading the list of words into memory. Loading
+     * continues in the background, so the dictionary can answer queries
+     * straight away
+     *
+     * @param in Reader over the sorted word file
+     */
+    public BaseDictionary(final BufferedReader in) {
+        wordList = new RedBlackTree();
+
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                load(in);
+            }
+        }, "dictionary-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Reads the word file in chunks and inserts each chunk into the tree and
+     * the phonetic index while holding the load lock, so that queries can run
+     * in between chunks. Once the last chunk is in, the tree is published to
+     * lock-free readers. If reading fails part way, the failure is kept and the
+     * words past the loaded part stay UNKNOWN<br> Running Time: Big Theta(n
+     * log n)
+     *
+     * @param in Reader over the sorted word file
+     */
+    private void load(BufferedReader in) {
+        String[] chunk = new String[LOAD_CHUNK_SIZE];
+        int chunkSize;
+        IOException failure = null;
+
+        do {
+            // Read the next chunk without holding the lock. The words read
+            // before a failure are still loaded
+            chunkSize = 0;
+            String word;
+            try {
+                while (chunkSize < chunk.length && (word = in.readLine()) != null) {
+                    chunk[chunkSize++] = word;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            synchronized (loadLock) {
+                for (int i = 0; i < chunkSize; i++) {
+                    wordList.insert(chunk[i]);
+                    soundAlikes.add(chunk[i]);
+                    if (loadedThrough == null || SpellChecker.DICTIONARY_ORDER.compare(chunk[i], loadedThrough) > 0) {
+                        loadedThrough = chunk[i];
+                    }
+                }
+                wordCount += chunkSize;
+            }
+        } while (failure == null && chunkSize == chunk.length);
+
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Nothing more to read, so the failure to close is harmless
+        }
+        if (failure != null) {
+            System.out.println("Dictionary load stopped early: " + failure.getMessage());
+        }
+        synchronized (loadLock) {
+            soundAlikes.trim();
+            loadFailure = failure;
+            loaded = true;
+            loadLock.notifyAll();
+        }
+
+        System.out.println("Red Black Tree loaded with " + wordCount + " words");
+        System.out.println("The height of the tree is " + wordList.height());
+        System.out.println("2 * log(n + 1)" + (2 * Math.log(wordCount + 1)));
+    }
+
+    /**
+     * Returns true once the whole word list has been loaded. A load that
+     * stopped early never counts as loaded<br> Running Time(both best and
+     * worst case): Big Theta(1)
+     *
+     * @return True if loading has finished, false otherwise
+     */
+    public boolean isLoaded() {
+        return loaded && loadFailure == null;
+    }
+
+    /**
+     * Blocks until the whole word list has been loaded
+     *
+     * @throws InterruptedException
+     * @throws IOException If the load stopped early
+     */
+    public void awaitLoaded() throws InterruptedException, IOException {
+        synchronized (loadLock) {
+            while (!loaded) {
+                loadLock.wait();
+            }
+            if (loadFailure != null) {
+                throw new IOException("Dictionary load stopped early after " + wordCount + " words", loadFailure);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the word is in the dictionary. While loading is still in
+     * progress, or if it stopped early, a word that is not found and sorts
+     * after the loaded part of the word file is reported as UNKNOWN<br> Running Time(best case): Big
+     * Theta(1)<br> Running Time(worst case): Big Theta(log n)<br>
+     *
+     * @param word The word to check
+     * @return FOUND, MISSING or UNKNOWN
+     */
+    public SpellChecker.Result check(String word) {
+        if (loaded) {
+            if (found(word)) {
+                return SpellChecker.Result.FOUND;
+            }
+            // Nothing changes once loading is over, so no lock is needed
+            return loadFailure != null && beyondLoaded(word) ? SpellChecker.Result.UNKNOWN : SpellChecker.Result.MISSING;
+        }
+
+        synchronized (loadLock) {
+            if (found(word)) {
+                return SpellChecker.Result.FOUND;
+            }
+            if ((!loaded || loadFailure != null) && beyondLoaded(word)) {
+                return SpellChecker.Result.UNKNOWN;
+            }
+            return SpellChecker.Result.MISSING;
+        }
+    }
+
+    /**
+     * Searches the tree for the word and records the comparisons made for the
+     * calling thread<br> Running Time(worst case): Big Theta(log n)
+     *
+     * @param word The word to search for
+     * @return True if the word is in the tree
+     */
+    private boolean found(String word) {
+        int compares = wordList.search(word);
+        recentCompares.get()[0] = Math.abs(compares);
+        return compares > 0;
+    }
+
+    /**
+     * Returns true if the word sorts at or after the last word loaded from
+     * the word file<br> Running Time(both best and worst case): Big Theta(1)
+     *
+     * @param word The word to check
+     * @return True if the word is past the loaded part of the word file
+     */
+    private boolean beyondLoaded(String word) {
+        return loadedThrough == null || SpellChecker.DICTIONARY_ORDER.compare(word, loadedThrough) >= 0;
+    }
+
+    /**
+     * Returns the word in the dictionary closest to the given word<br> Running
+     * Time(best case): Big Theta(1)<br> Running Time(worst case): Big Theta(log
+     * n)<br>
+     *
+     * @param word The word to search close by for
+     * @return The closest word loaded so far, or null if none is loaded
+     */
+    public String closeBy(String word) {
+        if (loaded) {
+            return wordList.closeBy(word);
+        }
+
+        synchronized (loadLock) {
+            return wordList.closeBy(word);
+        }
+    }
+
+    /**
+     * Returns the words in the dictionary that sound like the given word<br>
+     * Running Time(both best and worst case): Big Theta(number of
+     * sound-alikes)<br>
+     *
+     * @param word The word to find sound-alikes for
+     * @return Words loaded so far with the same phonetic code
+     */
+    public List<String> soundsLike(String word) {
+        if (loaded) {
+            return soundAlikes.soundsLike(word);
+        }
+
+        synchronized (loadLock) {
+            return soundAlikes.soundsLike(word);
+        }
+    }
+
+    /**
+     * Returns the comparisons made by the calling thread's most recent
+     * check<br> Running Time(both best and worst case): Big Theta(1)
+     *
+     * @return Number of comparisons made in the last call on check()
+     */
+    public int getRecentCompares() {
+        return recentCompares.get()[0];
+    }
+
+    /**
+     * Prints the entire word tree in level order
+     */
+    public void print() {
+        if (loaded) {
+            wordList.levelOrderTraversal();
+            return;
+        }
+
+        synchronized (loadLock) {
+            wordList.levelOrderTraversal();
+        }
+    }
+}
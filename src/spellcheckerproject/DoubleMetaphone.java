@@ -0,0 +1,818 @@
+package spellcheckerproject;
+
+import java.util.Locale;
+
+/**
+ * Implementation of Lawrence Philips' Double Metaphone phonetic encoding.
+ * Words that sound alike, such as "fone" and "phone", get the same code. A
+ * word whose sound depends on its origin, such as "thomas" or "schmidt", gets
+ * an alternate code besides its primary one
+ *
+ * @author vravuri
+ */
+public class DoubleMetaphone {
+
+    private static final String VOWELS = "AEIOUY";
+    private final String value;
+    private final boolean slavoGermanic;
+    private final StringBuilder primary;
+    private final StringBuilder alternate;
+
+    /**
+     * Constructor
+     *
+     * @param value Word to encode, in upper case
+     */
+    private DoubleMetaphone(String value) {
+        this.value = value;
+        this.slavoGermanic = value.indexOf('W') >= 0 || value.indexOf('K') >= 0
+                || value.contains("CZ") || value.contains("WITZ");
+        this.primary = new StringBuilder(value.length());
+        this.alternate = new StringBuilder(value.length());
+    }
+
+    /**
+     * Returns the primary and alternate Double Metaphone codes of the word.
+     * Characters other than letters and spaces are ignored<br> Running Time
+     * (both best and worst case): Big Theta(length of word)
+     *
+     * @param word Word to encode
+     * @return The primary code followed by the alternate code, which is the
+     * primary code again if the word has no alternate. Both are empty if the
+     * word has no letters
+     */
+    public static String[] encode(String word) {
+        String upper = word.toUpperCase(Locale.ROOT);
+        StringBuilder letters = new StringBuilder(upper.length());
+        for (int i = 0; i < upper.length(); i++) {
+            char c = upper.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || c == ' ' || c == '\u00C7' || c == '\u00D1') {
+                letters.append(c);
+            }
+        }
+
+        DoubleMetaphone encoder = new DoubleMetaphone(letters.toString().trim());
+        encoder.encode();
+        return new String[]{encoder.primary.toString(), encoder.alternate.toString()};
+    }
+
+    /**
+     * Encodes the word, one sound at a time
+     */
+    private void encode() {
+        int index = isSilentStart() ? 1 : 0;
+        while (index < value.length()) {
+            char c = value.charAt(index);
+            switch (c) {
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                case 'Y':
+                    // Only a leading vowel is kept, and all vowels sound as A
+                    if (index == 0) {
+                        append('A');
+                    }
+                    index++;
+                    break;
+                case 'B':
+                    append('P');
+                    index = at(index + 1) == 'B' ? index + 2 : index + 1;
+                    break;
+                case '\u00C7':
+                    append('S');
+                    index++;
+                    break;
+                case 'C':
+                    index = handleC(index);
+                    break;
+                case 'D':
+                    index = handleD(index);
+                    break;
+                case 'F':
+                    append('F');
+                    index = at(index + 1) == 'F' ? index + 2 : index + 1;
+                    break;
+                case 'G':
+                    index = handleG(index);
+                    break;
+                case 'H':
+                    index = handleH(index);
+                    break;
+                case 'J':
+                    index = handleJ(index);
+                    break;
+                case 'K':
+                    append('K');
+                    index = at(index + 1) == 'K' ? index + 2 : index + 1;
+                    break;
+                case 'L':
+                    index = handleL(index);
+                    break;
+                case 'M':
+                    append('M');
+                    index = silentAfterM(index) ? index + 2 : index + 1;
+                    break;
+                case 'N':
+                    append('N');
+                    index = at(index + 1) == 'N' ? index + 2 : index + 1;
+                    break;
+                case '\u00D1':
+                    append('N');
+                    index++;
+                    break;
+                case 'P':
+                    index = handleP(index);
+                    break;
+                case 'Q':
+                    append('K');
+                    index = at(index + 1) == 'Q' ? index + 2 : index + 1;
+                    break;
+                case 'R':
+                    index = handleR(index);
+                    break;
+                case 'S':
+                    index = handleS(index);
+                    break;
+                case 'T':
+                    index = handleT(index);
+                    break;
+                case 'V':
+                    append('F');
+                    index = at(index + 1) == 'V' ? index + 2 : index + 1;
+                    break;
+                case 'W':
+                    index = handleW(index);
+                    break;
+                case 'X':
+                    index = handleX(index);
+                    break;
+                case 'Z':
+                    index = handleZ(index);
+                    break;
+                default:
+                    index++;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the first letter is silent, as in "gnome", "knight",
+     * "pneumatic", "psychic" and "wrong"
+     *
+     * @return True if the word starts with a silent letter
+     */
+    private boolean isSilentStart() {
+        return contains(0, "GN", "KN", "PN", "PS", "WR");
+    }
+
+    /**
+     * Encodes a C
+     *
+     * @param index Index of the C
+     * @return Index of the next letter to encode
+     */
+    private int handleC(int index) {
+        if (isGermanicCh(index)) {
+            // "bacher", "macher"
+            append('K');
+            return index + 2;
+        } else if (index == 0 && contains(index, "CAESAR")) {
+            append('S');
+            return index + 2;
+        } else if (contains(index, "CH")) {
+            return handleCh(index);
+        } else if (contains(index, "CZ") && !contains(index - 2, "WICZ")) {
+            // "czerny"
+            append('S', 'X');
+            return index + 2;
+        } else if (contains(index + 1, "CIA")) {
+            // "focaccia"
+            append('X');
+            return index + 3;
+        } else if (contains(index, "CC") && !(index == 1 && at(0) == 'M')) {
+            // Doubled, but not as in "mcclelland"
+            return handleCc(index);
+        } else if (contains(index, "CK", "CG", "CQ")) {
+            append('K');
+            return index + 2;
+        } else if (contains(index, "CI", "CE", "CY")) {
+            // Italian against English
+            if (contains(index, "CIO", "CIE", "CIA")) {
+                append('S', 'X');
+            } else {
+                append('S');
+            }
+            return index + 2;
+        }
+
+        append('K');
+        if (contains(index + 1, " C", " Q", " G")) {
+            // "mac caffrey", "mac gregor"
+            return index + 3;
+        } else if (contains(index + 1, "C", "K", "Q") && !contains(index + 1, "CE", "CI")) {
+            return index + 2;
+        }
+        return index + 1;
+    }
+
+    /**
+     * Returns true if the C starts a CH that sounds as K, as in "bacher",
+     * "macher" and "chianti"
+     *
+     * @param index Index of the C
+     * @return True if the CH sounds as K
+     */
+    private boolean isGermanicCh(int index) {
+        if (contains(index, "CHIA")) {
+            return true;
+        } else if (index <= 1 || isVowel(at(index - 2)) || !contains(index - 1, "ACH")) {
+            return false;
+        }
+        char c = at(index + 2);
+        return (c != 'I' && c != 'E') || contains(index - 2, "BACHER", "MACHER");
+    }
+
+    /**
+     * Encodes a CH
+     *
+     * @param index Index of the C
+     * @return Index of the next letter to encode
+     */
+    private int handleCh(int index) {
+        if (index > 0 && contains(index, "CHAE")) {
+            // "michael"
+            append('K', 'X');
+        } else if (isGreekCh(index) || isKhCh(index)) {
+            // "chemistry", "chorus", or a CH spoken as KH
+            append('K');
+        } else if (index > 0) {
+            if (contains(0, "MC")) {
+                // "mchugh"
+                append('K');
+            } else {
+                append('X', 'K');
+            }
+        } else {
+            append('X');
+        }
+        return index + 2;
+    }
+
+    /**
+     * Returns true if the word starts with a CH of Greek origin, as in
+     * "character" and "chorus"
+     *
+     * @param index Index of the C
+     * @return True if the CH sounds as K
+     */
+    private boolean isGreekCh(int index) {
+        return index == 0
+                && (contains(index + 1, "HARAC", "HARIS") || contains(index + 1, "HOR", "HYM", "HIA", "HEM"))
+                && !contains(0, "CHORE");
+    }
+
+    /**
+     * Returns true if the CH is Germanic or otherwise spoken as KH, as in
+     * "orchestra", "architect" and "school"
+     *
+     * @param index Index of the C
+     * @return True if the CH sounds as K
+     */
+    private boolean isKhCh(int index) {
+        return contains(0, "VAN ", "VON ") || contains(0, "SCH")
+                || contains(index - 2, "ORCHES", "ARCHIT", "ORCHID")
+                || contains(index + 2, "T", "S")
+                || ((contains(index - 1, "A", "O", "U", "E") || index == 0)
+                && (contains(index + 2, "L", "R", "N", "M", "B", "H", "F", "V", "W", " ") || index + 1 == value.length() - 1));
+    }
+
+    /**
+     * Encodes a CC
+     *
+     * @param index Index of the first C
+     * @return Index of the next letter to encode
+     */
+    private int handleCc(int index) {
+        if (contains(index + 2, "I", "E", "H") && !contains(index + 2, "HU")) {
+            // "bellocchio", but not "bacchus"
+            if ((index == 1 && at(index - 1) == 'A') || contains(index - 1, "UCCEE", "UCCES")) {
+                // "accident", "accede", "succeed"
+                append("KS");
+            } else {
+                // "bacci", "bertucci"
+                append('X');
+            }
+            return index + 3;
+        }
+        append('K');
+        return index + 2;
+    }
+
+    /**
+     * Encodes a D
+     *
+     * @param index Index of the D
+     * @return Index of the next letter to encode
+     */
+    private int handleD(int index) {
+        if (contains(index, "DG")) {
+            if (contains(index + 2, "I", "E", "Y")) {
+                // "edge"
+                append('J');
+                return index + 3;
+            }
+            // "edgar"
+            append("TK");
+            return index + 2;
+        } else if (contains(index, "DT", "DD")) {
+            append('T');
+            return index + 2;
+        }
+        append('T');
+        return index + 1;
+    }
+
+    /**
+     * Encodes a G
+     *
+     * @param index Index of the G
+     * @return Index of the next letter to encode
+     */
+    private int handleG(int index) {
+        if (at(index + 1) == 'H') {
+            return handleGh(index);
+        } else if (at(index + 1) == 'N') {
+            if (index == 1 && isVowel(at(0)) && !slavoGermanic) {
+                append("KN", "N");
+            } else if (!contains(index + 2, "EY") && at(index + 1) != 'Y' && !slavoGermanic) {
+                append("N", "KN");
+            } else {
+                append("KN");
+            }
+            return index + 2;
+        } else if (contains(index + 1, "LI") && !slavoGermanic) {
+            // "tagliaro"
+            append("KL", "L");
+            return index + 2;
+        } else if (index == 0 && (at(index + 1) == 'Y'
+                || contains(index + 1, "ES", "EP", "EB", "EL", "EY", "IB", "IL", "IN", "IE", "EI", "ER"))) {
+            // -GES-, -GEP-, -GEL-, -GIE- at the start
+            append('K', 'J');
+            return index + 2;
+        } else if ((contains(index + 1, "ER") || at(index + 1) == 'Y')
+                && !contains(0, "DANGER", "RANGER", "MANGER")
+                && !contains(index - 1, "E", "I") && !contains(index - 1, "RGY", "OGY")) {
+            // -GER-, -GY-
+            append('K', 'J');
+            return index + 2;
+        } else if (contains(index + 1, "E", "I", "Y") || contains(index - 1, "AGGI", "OGGI")) {
+            if (contains(0, "VAN ", "VON ") || contains(0, "SCH") || contains(index + 1, "ET")) {
+                // Obviously Germanic
+                append('K');
+            } else if (contains(index + 1, "IER")) {
+                append('J');
+            } else {
+                append('J', 'K');
+            }
+            return index + 2;
+        } else if (at(index + 1) == 'G') {
+            append('K');
+            return index + 2;
+        }
+        append('K');
+        return index + 1;
+    }
+
+    /**
+     * Encodes a GH
+     *
+     * @param index Index of the G
+     * @return Index of the next letter to encode
+     */
+    private int handleGh(int index) {
+        if (index > 0 && !isVowel(at(index - 1))) {
+            append('K');
+        } else if (index == 0) {
+            // "ghislane", "ghiradelli"
+            append(at(index + 2) == 'I' ? 'J' : 'K');
+        } else if ((index > 1 && contains(index - 2, "B", "H", "D"))
+                || (index > 2 && contains(index - 3, "B", "H", "D"))
+                || (index > 3 && contains(index - 4, "B", "H"))) {
+            // Parker's rule, silent as in "hugh", "bough" and "broughton"
+        } else if (index > 2 && at(index - 1) == 'U' && contains(index - 3, "C", "G", "L", "R", "T")) {
+            // "laugh", "cough", "rough", "tough"
+            append('F');
+        } else if (at(index - 1) != 'I') {
+            append('K');
+        }
+        return index + 2;
+    }
+
+    /**
+     * Encodes an H, which is only kept first or between vowels
+     *
+     * @param index Index of the H
+     * @return Index of the next letter to encode
+     */
+    private int handleH(int index) {
+        if ((index == 0 || isVowel(at(index - 1))) && isVowel(at(index + 1))) {
+            append('H');
+            return index + 2;
+        }
+        return index + 1;
+    }
+
+    /**
+     * Encodes a J
+     *
+     * @param index Index of the J
+     * @return Index of the next letter to encode
+     */
+    private int handleJ(int index) {
+        if (contains(index, "JOSE") || contains(0, "SAN ")) {
+            // Obviously Spanish, "jose", "san jacinto"
+            if ((index == 0 && (at(index + 4) == ' ' || value.length() == 4)) || contains(0, "SAN ")) {
+                append('H');
+            } else {
+                append('J', 'H');
+            }
+            return index + 1;
+        }
+
+        if (index == 0) {
+            // "yankelovich", "jankelowicz"
+            append('J', 'A');
+        } else if (isVowel(at(index - 1)) && !slavoGermanic && (at(index + 1) == 'A' || at(index + 1) == 'O')) {
+            // Spanish pronunciation of "bajador"
+            append('J', 'H');
+        } else if (index == value.length() - 1) {
+            appendPrimary('J');
+        } else if (!contains(index + 1, "L", "T", "K", "S", "N", "M", "B", "Z") && !contains(index - 1, "S", "K", "L")) {
+            append('J');
+        }
+        return at(index + 1) == 'J' ? index + 2 : index + 1;
+    }
+
+    /**
+     * Encodes an L
+     *
+     * @param index Index of the L
+     * @return Index of the next letter to encode
+     */
+    private int handleL(int index) {
+        if (at(index + 1) == 'L') {
+            if (isSpanishLl(index)) {
+                // "cabrillo", "gallegos"
+                appendPrimary('L');
+            } else {
+                append('L');
+            }
+            return index + 2;
+        }
+        append('L');
+        return index + 1;
+    }
+
+    /**
+     * Returns true if the LL is Spanish, and so may sound as Y
+     *
+     * @param index Index of the first L
+     * @return True if the LL is Spanish
+     */
+    private boolean isSpanishLl(int index) {
+        if (index == value.length() - 3 && contains(index - 1, "ILLO", "ILLA", "ALLE")) {
+            return true;
+        }
+        return (contains(value.length() - 2, "AS", "OS") || contains(value.length() - 1, "A", "O"))
+                && contains(index - 1, "ALLE");
+    }
+
+    /**
+     * Returns true if the letter after the M is silent, as in "hammer",
+     * "dumb" and "thumbelina"
+     *
+     * @param index Index of the M
+     * @return True if the next letter is skipped
+     */
+    private boolean silentAfterM(int index) {
+        if (at(index + 1) == 'M') {
+            return true;
+        }
+        return contains(index - 1, "UMB") && (index + 1 == value.length() - 1 || contains(index + 2, "ER"));
+    }
+
+    /**
+     * Encodes a P
+     *
+     * @param index Index of the P
+     * @return Index of the next letter to encode
+     */
+    private int handleP(int index) {
+        if (at(index + 1) == 'H') {
+            append('F');
+            return index + 2;
+        }
+        if (at(index - 1) == 'M' && contains(index + 1, "S", "T")) {
+            // Silent between M and S or T, as in "thompson" and "empty". This
+            // is not one of Philips' rules, but without it "thompson" and
+            // "tomson" do not match
+            return index + 1;
+        }
+        append('P');
+        // "campbell", "raspberry"
+        return contains(index + 1, "P", "B") ? index + 2 : index + 1;
+    }
+
+    /**
+     * Encodes an R
+     *
+     * @param index Index of the R
+     * @return Index of the next letter to encode
+     */
+    private int handleR(int index) {
+        if (index == value.length() - 1 && !slavoGermanic && contains(index - 2, "IE") && !contains(index - 4, "ME", "MA")) {
+            // French, as in "rogier", but not "hochmeier"
+            appendAlternate('R');
+        } else {
+            append('R');
+        }
+        return at(index + 1) == 'R' ? index + 2 : index + 1;
+    }
+
+    /**
+     * Encodes an S
+     *
+     * @param index Index of the S
+     * @return Index of the next letter to encode
+     */
+    private int handleS(int index) {
+        if (contains(index - 1, "ISL", "YSL")) {
+            // "island", "isle", "carlisle", "carlysle"
+            return index + 1;
+        } else if (index == 0 && contains(index, "SUGAR")) {
+            append('X', 'S');
+            return index + 1;
+        } else if (contains(index, "SH")) {
+            if (contains(index + 1, "HEIM", "HOEK", "HOLM", "HOLZ")) {
+                // Germanic
+                append('S');
+            } else {
+                append('X');
+            }
+            return index + 2;
+        } else if (contains(index, "SIO", "SIA") || contains(index, "SIAN")) {
+            // Italian and Armenian
+            if (slavoGermanic) {
+                append('S');
+            } else {
+                append('S', 'X');
+            }
+            return index + 3;
+        } else if ((index == 0 && contains(index + 1, "M", "N", "L", "W")) || contains(index + 1, "Z")) {
+            // "smith" against "schmidt", "snider" against "schneider", and
+            // a Slavic SZ
+            append('S', 'X');
+            return contains(index + 1, "Z") ? index + 2 : index + 1;
+        } else if (contains(index, "SC")) {
+            return handleSc(index);
+        }
+
+        if (index == value.length() - 1 && contains(index - 2, "AI", "OI")) {
+            // French, as in "resnais" and "artois"
+            appendAlternate('S');
+        } else {
+            append('S');
+        }
+        return contains(index + 1, "S", "Z") ? index + 2 : index + 1;
+    }
+
+    /**
+     * Encodes an SC
+     *
+     * @param index Index of the S
+     * @return Index of the next letter to encode
+     */
+    private int handleSc(int index) {
+        if (at(index + 2) == 'H') {
+            // Schlesinger's rule
+            if (contains(index + 3, "OO", "ER", "EN", "UY", "ED", "EM")) {
+                // Dutch, as in "school" and "schooner"
+                if (contains(index + 3, "ER", "EN")) {
+                    // "schermerhorn", "schenker"
+                    append("X", "SK");
+                } else {
+                    append("SK");
+                }
+            } else if (index == 0 && !isVowel(at(3)) && at(3) != 'W') {
+                append('X', 'S');
+            } else {
+                append('X');
+            }
+        } else if (contains(index + 2, "I", "E", "Y")) {
+            append('S');
+        } else {
+            append("SK");
+        }
+        return index + 3;
+    }
+
+    /**
+     * Encodes a T
+     *
+     * @param index Index of the T
+     * @return Index of the next letter to encode
+     */
+    private int handleT(int index) {
+        if (contains(index, "TION") || contains(index, "TIA", "TCH")) {
+            append('X');
+            return index + 3;
+        } else if (contains(index, "TH") || contains(index, "TTH")) {
+            if (contains(index + 2, "OM", "AM") || contains(0, "VAN ", "VON ") || contains(0, "SCH")) {
+                // "thomas", "thames", or Germanic
+                append('T');
+            } else {
+                // '0' stands for the TH sound
+                append('0', 'T');
+            }
+            return index + 2;
+        }
+        append('T');
+        return contains(index + 1, "T", "D") ? index + 2 : index + 1;
+    }
+
+    /**
+     * Encodes a W
+     *
+     * @param index Index of the W
+     * @return Index of the next letter to encode
+     */
+    private int handleW(int index) {
+        if (contains(index, "WR")) {
+            append('R');
+            return index + 2;
+        }
+
+        if (index == 0 && (isVowel(at(index + 1)) || contains(index, "WH"))) {
+            if (isVowel(at(index + 1))) {
+                // "wasserman" should match "vasserman"
+                append('A', 'F');
+            } else {
+                // "uomo" should match "womo"
+                append('A');
+            }
+            return index + 1;
+        } else if ((index == value.length() - 1 && isVowel(at(index - 1)))
+                || contains(index - 1, "EWSKI", "EWSKY", "OWSKI", "OWSKY") || contains(0, "SCH")) {
+            // "arnow" should match "arnoff"
+            appendAlternate('F');
+            return index + 1;
+        } else if (contains(index, "WICZ", "WITZ")) {
+            // Polish, as in "filipowicz"
+            append("TS", "FX");
+            return index + 4;
+        }
+        return index + 1;
+    }
+
+    /**
+     * Encodes an X
+     *
+     * @param index Index of the X
+     * @return Index of the next letter to encode
+     */
+    private int handleX(int index) {
+        if (index == 0) {
+            append('S');
+            return index + 1;
+        }
+        if (!(index == value.length() - 1 && (contains(index - 3, "IAU", "EAU") || contains(index - 2, "AU", "OU")))) {
+            // Silent in French endings, as in "breaux"
+            append("KS");
+        }
+        return contains(index + 1, "C", "X") ? index + 2 : index + 1;
+    }
+
+    /**
+     * Encodes a Z
+     *
+     * @param index Index of the Z
+     * @return Index of the next letter to encode
+     */
+    private int handleZ(int index) {
+        if (at(index + 1) == 'H') {
+            // Chinese pinyin, as in "zhao"
+            append('J');
+            return index + 2;
+        }
+        if (contains(index + 1, "ZO", "ZI", "ZA") || (slavoGermanic && index > 0 && at(index - 1) != 'T')) {
+            append("S", "TS");
+        } else {
+            append('S');
+        }
+        return at(index + 1) == 'Z' ? index + 2 : index + 1;
+    }
+
+    /**
+     * Returns true if the letter is a vowel
+     *
+     * @param c The letter
+     * @return True if it is one of AEIOUY
+     */
+    private static boolean isVowel(char c) {
+        return VOWELS.indexOf(c) >= 0;
+    }
+
+    /**
+     * Returns the letter at the index, or a space if the index is outside the
+     * word
+     *
+     * @param index Index of the letter
+     * @return Letter at the index
+     */
+    private char at(int index) {
+        return index >= 0 && index < value.length() ? value.charAt(index) : ' ';
+    }
+
+    /**
+     * Returns true if one of the spellings starts at the index. All the
+     * spellings have the same length
+     *
+     * @param index Index in the word
+     * @param spellings Spellings to look for
+     * @return True if the word has one of them at the index
+     */
+    private boolean contains(int index, String... spellings) {
+        if (index < 0 || index + spellings[0].length() > value.length()) {
+            return false;
+        }
+        for (String spelling : spellings) {
+            if (value.startsWith(spelling, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the sound to both codes
+     *
+     * @param c Code of the sound
+     */
+    private void append(char c) {
+        primary.append(c);
+        alternate.append(c);
+    }
+
+    /**
+     * Appends a sound that differs between the codes
+     *
+     * @param primaryCode Code of the sound in the primary code
+     * @param alternateCode Code of the sound in the alternate code
+     */
+    private void append(char primaryCode, char alternateCode) {
+        primary.append(primaryCode);
+        alternate.append(alternateCode);
+    }
+
+    /**
+     * Appends the sounds to both codes
+     *
+     * @param code Codes of the sounds
+     */
+    private void append(String code) {
+        primary.append(code);
+        alternate.append(code);
+    }
+
+    /**
+     * Appends sounds that differ between the codes
+     *
+     * @param primaryCode Codes of the sounds in the primary code
+     * @param alternateCode Codes of the sounds in the alternate code
+     */
+    private void append(String primaryCode, String alternateCode) {
+        primary.append(primaryCode);
+        alternate.append(alternateCode);
+    }
+
+    /**
+     * Appends a sound to the primary code only
+     *
+     * @param c Code of the sound
+     */
+    private void appendPrimary(char c) {
+        primary.append(c);
+    }
+
+    /**
+     * Appends a sound to the alternate code only
+     *
+     * @param c Code of the sound
+     */
+    private void appendAlternate(char c) {
+        alternate.append(c);
+    }
+}
@@ -0,0 +1,453 @@
+package spellcheckerproject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Load generator for the spell checker. Replays a Zipf-distributed stream of
+ * words from words.txt, a share of them misspelt, through SpellChecker on 1 to
+ * N threads. The results are written as a properties report and compared
+ * against stored baselines, failing if any of them has regressed
+ *
+ * <p>Heap after load and allocation per lookup only depend on the code, so
+ * their baseline is kept in the repository and always gated; a run without it
+ * fails. Throughput and latency depend on the machine, so their baseline is
+ * local, and they are only gated once one has been stored
+ *
+ * <p>Arguments are given as name=value pairs: threads (4), tokens per thread
+ * (200000), misspell rate (0.05), zipf exponent (1.0), seed (42), threshold of
+ * allowed regression (0.10), report (build/loadgen.properties), baseline
+ * (perf/baseline.properties), local-baseline (perf/local-baseline.properties),
+ * update-baseline (false) and update-local-baseline (false). The update
+ * arguments store the report in the baseline instead of comparing against it;
+ * a changed perf/baseline.properties has to be committed with the change that
+ * explains it
+ *
+ * @author vravuri
+ */
+public class LoadGenerator {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private final String[] vocabulary;
+    private final double[] cumulative;
+    private final double misspellRate;
+
+    /**
+     * Constructor. Ranks the vocabulary in a random order and builds the
+     * cumulative Zipf distribution over the ranks<br> Running Time: Big
+     * Theta(n)
+     *
+     * @param words Words to draw tokens from
+     * @param exponent Exponent of the Zipf distribution
+     * @param misspellRate Share of tokens to misspell
+     * @param seed Seed for ranking the words
+     */
+    public LoadGenerator(List<String> words, double exponent, double misspellRate, long seed) {
+        List<String> ranked = new ArrayList<>(words);
+        Collections.shuffle(ranked, new Random(seed));
+        this.vocabulary = ranked.toArray(new String[ranked.size()]);
+        this.misspellRate = misspellRate;
+
+        this.cumulative = new double[vocabulary.length];
+        double total = 0;
+        for (int rank = 0; rank < vocabulary.length; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < vocabulary.length; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    /**
+     * Generates a stream of tokens<br> Running Time: Big Theta(count log n)
+     *
+     * @param count Number of tokens
+     * @param random Source of randomness
+     * @return The tokens
+     */
+    public String[] tokens(int count, Random random) {
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            String word = vocabulary[Math.min(rank < 0 ? -rank - 1 : rank, vocabulary.length - 1)];
+            tokens[i] = random.nextDouble() < misspellRate ? misspell(word, random) : word;
+        }
+        return tokens;
+    }
+
+    /**
+     * Applies one random edit to the word: a substitution, an insertion, a
+     * deletion or a transposition
+     *
+     * @param word Word to misspell
+     * @param random Source of randomness
+     * @return The misspelt word
+     */
+    private static String misspell(String word, Random random) {
+        StringBuilder misspelt = new StringBuilder(word);
+        int at = random.nextInt(word.length());
+        char letter = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+
+        switch (word.length() > 1 ? random.nextInt(4) : 1) {
+            case 0:
+                misspelt.setCharAt(at, letter);
+                break;
+            case 1:
+                misspelt.insert(at, letter);
+                break;
+            case 2:
+                misspelt.deleteCharAt(at);
+                break;
+            default:
+                at = Math.min(at, word.length() - 2);
+                misspelt.setCharAt(at, word.charAt(at + 1));
+                misspelt.setCharAt(at + 1, word.charAt(at));
+                break;
+        }
+        return misspelt.toString();
+    }
+
+    /**
+     * Runs the spell check pipeline over the tokens: check each token, and look
+     * up the closest word for those not found. Latencies are recorded per
+     * token
+     *
+     * @param checker Spell checker under load
+     * @param tokens Tokens to check
+     * @param latencies Receives the latency of each token in nanoseconds
+     */
+    private static void replay(SpellChecker checker, String[] tokens, long[] latencies) {
+        for (int i = 0; i < tokens.length; i++) {
+            long start = System.nanoTime();
+            if (checker.check(tokens[i]) != SpellChecker.Result.FOUND) {
+                checker.closeBy(tokens[i]);
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Replays a token stream per thread on the given number of threads and
+     * adds throughput, latency percentiles and allocation per lookup to the
+     * report
+     *
+     * @param checker Spell checker under load
+     * @param streams One token stream per thread
+     * @param report Report to add the results to
+     * @throws InterruptedException
+     */
+    private static void measure(final SpellChecker checker, final String[][] streams, Properties report) throws InterruptedException {
+        final int threads = streams.length;
+        final long[][] latencies = new long[threads][];
+        final long[] allocated = new long[threads];
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            latencies[t] = new long[streams[t].length];
+            final int worker = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long before = allocatedBytes(threadBean);
+                    replay(checker, streams[worker], latencies[worker]);
+                    allocated[worker] = before < 0 ? -1 : allocatedBytes(threadBean) - before;
+                }
+            }, "loadgen-" + t);
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int count = 0;
+        long allocatedTotal = 0;
+        for (int t = 0; t < threads; t++) {
+            count += latencies[t].length;
+            allocatedTotal = allocatedTotal < 0 || allocated[t] < 0 ? -1 : allocatedTotal + allocated[t];
+        }
+        long[] all = new long[count];
+        int at = 0;
+        for (long[] part : latencies) {
+            System.arraycopy(part, 0, all, at, part.length);
+            at += part.length;
+        }
+        Arrays.sort(all);
+
+        String prefix = "threads." + threads + ".";
+        report.setProperty(prefix + "throughput.ops", Long.toString(count * 1000000000L / elapsed));
+        report.setProperty(prefix + "latency.p50.ns", Long.toString(percentile(all, 0.50)));
+        report.setProperty(prefix + "latency.p99.ns", Long.toString(percentile(all, 0.99)));
+        report.setProperty(prefix + "latency.p999.ns", Long.toString(percentile(all, 0.999)));
+        report.setProperty(prefix + "alloc.per.lookup.bytes", Long.toString(allocatedTotal < 0 ? -1 : allocatedTotal / count));
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if the
+     * JVM cannot tell
+     *
+     * @param threadBean Thread management bean of the JVM
+     * @return Bytes allocated by the current thread
+     */
+    private static long allocatedBytes(ThreadMXBean threadBean) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value at the given percentile of sorted values
+     *
+     * @param sorted Values in ascending order
+     * @param fraction Percentile as a fraction between 0 and 1
+     * @return Value at the percentile
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+
+    /**
+     * Returns true if the result only depends on the code, not on the machine
+     * it ran on
+     *
+     * @param key Name of the result
+     * @return True for heap and allocation, false for throughput and latency
+     */
+    private static boolean machineIndependent(String key) {
+        return key.equals("heap.after.load.bytes") || key.endsWith(".alloc.per.lookup.bytes");
+    }
+
+    /**
+     * Stores results as a baseline
+     *
+     * @param results Results to store
+     * @param file Baseline file
+     * @param comments Settings of the run
+     * @throws IOException
+     */
+    private static void store(Properties results, File file, String comments) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            results.store(out, comments);
+        }
+    }
+
+    /**
+     * Loads a baseline
+     *
+     * @param file Baseline file
+     * @return Results stored in it
+     * @throws IOException
+     */
+    private static Properties load(File file) throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            baseline.load(in);
+        }
+        return baseline;
+    }
+
+    /**
+     * Compares the report against the baseline. Throughput may not drop, and
+     * latency, allocation and heap may not grow, by more than the threshold.
+     * The p999 latency is reported but not gated, as it is too noisy from one
+     * run to the next
+     *
+     * @param report Results of this run
+     * @param baseline Results stored as the baseline
+     * @param threshold Allowed regression as a fraction
+     * @return Descriptions of the regressions, empty if there are none
+     */
+    private static List<String> regressions(Properties report, Properties baseline, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(report.stringPropertyNames())) {
+            if (baseline.getProperty(key) == null || key.endsWith(".p999.ns")) {
+                continue;
+            }
+            long current = Long.parseLong(report.getProperty(key));
+            long expected = Long.parseLong(baseline.getProperty(key));
+            if (current < 0 || expected < 0) {
+                continue;
+            }
+            boolean regressed = key.endsWith(".ops")
+                    ? current < expected * (1 - threshold)
+                    : current > expected * (1 + threshold);
+            if (regressed) {
+                regressions.add(key + " is " + current + " against a baseline of " + expected);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Parses name=value arguments
+     *
+     * @param args Arguments
+     * @return Argument values by name
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value but got \"" + arg + "\"");
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Returns the value of an argument, or its default if it was not given
+     *
+     * @param options Argument values by name
+     * @param name Name of the argument
+     * @param defaultValue Default value
+     * @return Value of the argument
+     */
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        return options.containsKey(name) ? options.get(name) : defaultValue;
+    }
+
+    /**
+     * Runs the load generator. Exits with status 1 if a result regressed past
+     * the threshold, or if there is no heap and allocation baseline to compare
+     * against
+     *
+     * @param args name=value arguments, see the class description
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = parse(args);
+        int maxThreads = Integer.parseInt(option(options, "threads", "4"));
+        int tokens = Integer.parseInt(option(options, "tokens", "200000"));
+        double misspellRate = Double.parseDouble(option(options, "misspell", "0.05"));
+        double exponent = Double.parseDouble(option(options, "zipf", "1.0"));
+        long seed = Long.parseLong(option(options, "seed", "42"));
+        double threshold = Double.parseDouble(option(options, "threshold", "0.10"));
+        File reportFile = new File(option(options, "report", "build/loadgen.properties"));
+        File baselineFile = new File(option(options, "baseline", "perf/baseline.properties"));
+        File localBaselineFile = new File(option(options, "local-baseline", "perf/local-baseline.properties"));
+        boolean updateBaseline = Boolean.parseBoolean(option(options, "update-baseline", "false"));
+        boolean updateLocalBaseline = Boolean.parseBoolean(option(options, "update-local-baseline", "false"));
+
+        String wordFile = "words.txt";
+        System.setProperty("spellchecker.words", wordFile);
+        System.setProperty("spellchecker.dir", Files.createTempDirectory("loadgen").toString());
+
+        List<String> words = new ArrayList<>();
+        InputStream in = LoadGenerator.class.getResourceAsStream(wordFile);
+        if (in == null) {
+            throw new FileNotFoundException(wordFile);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String word;
+            while ((word = reader.readLine()) != null) {
+                if (word.length() > 0) {
+                    words.add(word);
+                }
+            }
+        }
+        LoadGenerator generator = new LoadGenerator(words, exponent, misspellRate, seed);
+
+        Properties report = new Properties();
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        SpellChecker checker = new SpellChecker("loadgen");
+        checker.awaitLoaded();
+        System.gc();
+        report.setProperty("heap.after.load.bytes", Long.toString(runtime.totalMemory() - runtime.freeMemory() - heapBefore));
+
+        // Warm up on the largest thread count, then measure each thread count
+        // on its own streams
+        Random random = new Random(seed);
+        for (int threads = 0; threads <= maxThreads; threads++) {
+            int workers = threads == 0 ? maxThreads : threads;
+            String[][] streams = new String[workers][];
+            for (int t = 0; t < workers; t++) {
+                streams[t] = generator.tokens(tokens, random);
+            }
+            measure(checker, streams, threads == 0 ? new Properties() : report);
+        }
+        checker.close();
+
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        String comments = "threads=" + maxThreads + " tokens=" + tokens + " misspell=" + misspellRate + " zipf=" + exponent + " seed=" + seed;
+        try (OutputStream out = new FileOutputStream(reportFile)) {
+            report.store(out, comments);
+        }
+        for (String key : new TreeSet<>(report.stringPropertyNames())) {
+            System.out.println(key + "=" + report.getProperty(key));
+        }
+
+        Properties shared = new Properties();
+        Properties local = new Properties();
+        for (String key : report.stringPropertyNames()) {
+            (machineIndependent(key) ? shared : local).setProperty(key, report.getProperty(key));
+        }
+        if (updateBaseline) {
+            store(shared, baselineFile, comments);
+            System.out.println("Stored heap and allocation of this run as the baseline " + baselineFile + ", commit it with the change that explains it");
+        }
+        if (updateLocalBaseline) {
+            store(local, localBaselineFile, comments);
+            System.out.println("Stored throughput and latency of this run as the local baseline " + localBaselineFile);
+        }
+        if (updateBaseline || updateLocalBaseline) {
+            return;
+        }
+
+        if (!baselineFile.exists()) {
+            System.out.println("No baseline at " + baselineFile + ", run again with update-baseline=true to store one");
+            System.exit(1);
+        }
+        List<String> regressions = regressions(shared, load(baselineFile), threshold);
+        if (localBaselineFile.exists()) {
+            regressions.addAll(regressions(local, load(localBaselineFile), threshold));
+        } else {
+            System.out.println("No local baseline at " + localBaselineFile + ", so throughput and latency are not gated."
+                    + " Run with update-local-baseline=true to store one");
+        }
+        if (regressions.isEmpty()) {
+            System.out.println("No regression past " + threshold);
+            return;
+        }
+        for (String regression : regressions) {
+            System.out.println("Regression: " + regression);
+        }
+        System.exit(1);
+    }
+}
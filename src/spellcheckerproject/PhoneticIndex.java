@@ -0,0 +1,478 @@
+package spellcheckerproject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import redblacktreeproject.RedBlackNode;
+
+/**
+ * Secondary index of a dictionary by phonetic code, so the words that sound
+ * like a misspelling are found with a single hash lookup per code. Each word is
+ * indexed under both its primary and its alternate Double Metaphone code. To
+ * stay small next to the tree it keeps no object per word: the words are stored
+ * back to back in one byte array, in the encoding of RedBlackNode, and the
+ * entries for their codes are chained by the hash of the code through int
+ * arrays. The sound-alikes found are ranked by how close they are to the word
+ * looked up, and main() checks the ranking against known misspellings
+ *
+ * @author vravuri
+ */
+public class PhoneticIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Pairs of spellings that sound the same, for ranking sound-alikes
+     */
+    private static final String[] SOUNDS_ALIKE = {
+        "ph", "f", "gh", "f", "ck", "k", "c", "k", "q", "k", "ch", "k",
+        "c", "s", "z", "s", "x", "ks", "wr", "r", "kn", "n", "gn", "n", "wh", "w"
+    };
+    /**
+     * The distinct spellings in SOUNDS_ALIKE. A set of them is kept as a bit
+     * mask
+     */
+    private static final List<String> SPELLINGS = new ArrayList<>();
+    /**
+     * For each spelling, the mask of the spellings it sounds like
+     */
+    private static final int[] PARTNERS;
+    /**
+     * For each letter from a to z, the mask of the spellings ending in it
+     */
+    private static final int[] ENDING_IN = new int[26];
+
+    static {
+        for (String spelling : SOUNDS_ALIKE) {
+            if (!SPELLINGS.contains(spelling)) {
+                SPELLINGS.add(spelling);
+                ENDING_IN[spelling.charAt(spelling.length() - 1) - 'a'] |= 1 << (SPELLINGS.size() - 1);
+            }
+        }
+        PARTNERS = new int[SPELLINGS.size()];
+        for (int k = 0; k < SOUNDS_ALIKE.length; k += 2) {
+            int x = SPELLINGS.indexOf(SOUNDS_ALIKE[k]);
+            int y = SPELLINGS.indexOf(SOUNDS_ALIKE[k + 1]);
+            PARTNERS[x] |= 1 << y;
+            PARTNERS[y] |= 1 << x;
+        }
+    }
+    private byte[] text = new byte[INITIAL_CAPACITY * 8];
+    private int textLength;
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int size;
+    private int[] entryWords = new int[INITIAL_CAPACITY];
+    private int[] entryHashes = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int[] heads = newHeads(INITIAL_CAPACITY);
+    private int entries;
+
+    /**
+     * Adds the word under its primary and alternate codes, unless it is already
+     * there. A word without either code is not indexed<br> Running Time
+     * (best case): Big Theta(length of word)<br> Running Time (worst case):
+     * Big Theta(n) when the arrays grow
+     *
+     * @param word Word to be indexed
+     */
+    public void add(String word) {
+        String[] codes = DoubleMetaphone.encode(word);
+        int first = codes[0].length() > 0 ? 0 : 1;
+        if (codes[first].length() == 0) {
+            return;
+        }
+
+        // A word indexed before has an entry under its first code
+        int hash = codes[first].hashCode();
+        byte[] encoded = RedBlackNode.encode(word);
+        for (int e = heads[hash & (heads.length - 1)]; e >= 0; e = next[e]) {
+            if (entryHashes[e] == hash && sameWord(entryWords[e], encoded)) {
+                return;
+            }
+        }
+
+        int length = encoded.length - 1;
+        if (size == ends.length) {
+            ends = Arrays.copyOf(ends, Math.max(size * 2, INITIAL_CAPACITY));
+        }
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+        System.arraycopy(encoded, 1, text, textLength, length);
+        textLength += length;
+        ends[size] = textLength;
+        addEntry(size, hash);
+        if (first == 0 && codes[1].length() > 0 && !codes[1].equals(codes[0])) {
+            addEntry(size, codes[1].hashCode());
+        }
+        size++;
+    }
+
+    /**
+     * Returns the indexed words that sound like the word, that is those sharing
+     * its primary or alternate code<br> Running Time (best case): Big
+     * Theta(length of word)
+     *
+     * @param word Word to look up
+     * @return Words sharing a phonetic code with the word, in the order they
+     * were added
+     */
+    public List<String> soundsLike(String word) {
+        String[] codes = DoubleMetaphone.encode(word);
+        int[] found = new int[8];
+        int count = 0;
+        for (int c = 0; c < 2; c++) {
+            if (codes[c].length() == 0 || (c == 1 && codes[1].equals(codes[0]))) {
+                continue;
+            }
+            int hash = codes[c].hashCode();
+            for (int e = heads[hash & (heads.length - 1)]; e >= 0; e = next[e]) {
+                if (entryHashes[e] == hash) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = entryWords[e];
+                }
+            }
+        }
+
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+
+        // A word can be found under both codes, and the chains run from the
+        // newest entry to the oldest
+        Arrays.sort(found, 0, count);
+        List<String> soundAlikes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && found[i] == found[i - 1]) {
+                continue;
+            }
+            String soundAlike = word(found[i]);
+            // Different codes can share a hash
+            String[] soundAlikeCodes = DoubleMetaphone.encode(soundAlike);
+            if (sharesCode(codes, soundAlikeCodes)) {
+                soundAlikes.add(soundAlike);
+            }
+        }
+        return soundAlikes;
+    }
+
+    /**
+     * Releases the spare capacity of the arrays, once no more words are
+     * expected<br> Running Time (both best and worst case): Big Theta(n)
+     */
+    public void trim() {
+        text = Arrays.copyOf(text, textLength);
+        ends = Arrays.copyOf(ends, size);
+        entryWords = Arrays.copyOf(entryWords, entries);
+        entryHashes = Arrays.copyOf(entryHashes, entries);
+        next = Arrays.copyOf(next, entries);
+    }
+
+    /**
+     * Sorts sound-alikes of the word, closest first: by sound distance, then by
+     * how much the length differs, then preferring the same first letter<br>
+     * Running Time: Big Theta(k log k) for k sound-alikes
+     *
+     * @param word The word the sound-alikes were found for
+     * @param soundAlikes Sound-alikes to sort
+     */
+    public static void rank(final String word, List<String> soundAlikes) {
+        SoundDistance distance = new SoundDistance(word);
+        final Map<String, Integer> distances = new HashMap<>();
+        for (String soundAlike : soundAlikes) {
+            distances.put(soundAlike, distance.to(soundAlike));
+        }
+        final char first = word.isEmpty() ? ' ' : Character.toLowerCase(word.charAt(0));
+        Collections.sort(soundAlikes, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int result = distances.get(a) - distances.get(b);
+                if (result == 0) {
+                    result = Math.abs(a.length() - word.length()) - Math.abs(b.length() - word.length());
+                }
+                if (result == 0) {
+                    result = firstLetterMatch(b, first) - firstLetterMatch(a, first);
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Returns 1 if the word starts with the letter, ignoring case, 0 otherwise
+     *
+     * @param word The word
+     * @param first Letter in lower case
+     * @return 1 if the word starts with the letter
+     */
+    private static int firstLetterMatch(String word, char first) {
+        return !word.isEmpty() && Character.toLowerCase(word.charAt(0)) == first ? 1 : 0;
+    }
+
+    /**
+     * Adds an entry for the word under a code
+     *
+     * @param w Number of the word
+     * @param hash Hash of the code
+     */
+    private void addEntry(int w, int hash) {
+        if (entries == entryWords.length) {
+            int capacity = Math.max(entries * 2, INITIAL_CAPACITY);
+            entryWords = Arrays.copyOf(entryWords, capacity);
+            entryHashes = Arrays.copyOf(entryHashes, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        if (entries == heads.length) {
+            // Keep the chains short by having a slot per entry
+            heads = newHeads(heads.length * 2);
+            for (int e = 0; e < entries; e++) {
+                link(e);
+            }
+        }
+        entryWords[entries] = w;
+        entryHashes[entries] = hash;
+        link(entries);
+        entries++;
+    }
+
+    /**
+     * Puts the entry at the head of the chain for its code hash
+     *
+     * @param e Number of the entry
+     */
+    private void link(int e) {
+        int slot = entryHashes[e] & (heads.length - 1);
+        next[e] = heads[slot];
+        heads[slot] = e;
+    }
+
+    /**
+     * Returns the stored word
+     *
+     * @param w Number of the word
+     * @return The word
+     */
+    private String word(int w) {
+        int start = w == 0 ? 0 : ends[w - 1];
+        return RedBlackNode.decode(text, start, ends[w] - start);
+    }
+
+    /**
+     * Returns true if the stored word has the given encoding
+     *
+     * @param w Number of the word
+     * @param encoded Word encoded by RedBlackNode.encode()
+     * @return True if the words are the same
+     */
+    private boolean sameWord(int w, byte[] encoded) {
+        int start = w == 0 ? 0 : ends[w - 1];
+        if (ends[w] - start != encoded.length - 1) {
+            return false;
+        }
+        for (int i = 1; i < encoded.length; i++) {
+            if (text[start + i - 1] != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if two words share their primary or alternate code. Empty
+     * codes are not shared
+     *
+     * @param a Codes of the first word
+     * @param b Codes of the second word
+     * @return True if a code of the one is a code of the other
+     */
+    private static boolean sharesCode(String[] a, String[] b) {
+        for (String code : a) {
+            if (code.length() > 0 && (code.equals(b[0]) || code.equals(b[1]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an empty table of chain heads
+     *
+     * @param capacity Number of slots, a power of two
+     * @return Table with every slot empty
+     */
+    private static int[] newHeads(int capacity) {
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        return heads;
+    }
+
+    /**
+     * Test driver: indexes words.txt and checks that misspellings get the word
+     * they sound like among the sound-alikes shown for them
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        PhoneticIndex index = new PhoneticIndex();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(PhoneticIndex.class.getResourceAsStream("words.txt"), StandardCharsets.UTF_8))) {
+            String word;
+            while ((word = in.readLine()) != null) {
+                index.add(word);
+            }
+        }
+
+        String[][] expected = {
+            {"fone", "phone"}, {"fisiks", "physics"}, {"tomas", "Thomas"}, {"sekret", "secret"}
+        };
+        boolean passed = true;
+        for (String[] pair : expected) {
+            List<String> soundAlikes = index.soundsLike(pair[0]);
+            rank(pair[0], soundAlikes);
+            List<String> shown = soundAlikes.subList(0, Math.min(SpellChecker.SOUND_ALIKES_SHOWN, soundAlikes.size()));
+            if (shown.contains(pair[1])) {
+                System.out.println(pair[0] + " suggests " + pair[1] + " at " + (shown.indexOf(pair[1]) + 1) + " of " + soundAlikes.size());
+            } else {
+                System.out.println(pair[0] + " does not suggest " + pair[1] + ", only " + shown);
+                passed = false;
+            }
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Damerau distance from one word to others, ignoring case, in half edits.
+     * Inserting, deleting or replacing a letter and swapping two neighbouring
+     * letters cost 2, and swapping one spelling in SOUNDS_ALIKE for the other
+     * costs 1, so "fone" is closer to "phone" than to "fine". The word is
+     * prepared once, and the table of costs is reused from one word to the
+     * next
+     */
+    private static final class SoundDistance {
+
+        private final char[] word;
+        private final int[] wordEndings;
+        private char[] other = new char[16];
+        private int[] otherEndings = new int[17];
+        private int[] cost = new int[0];
+
+        /**
+         * Constructor
+         *
+         * @param word The word to measure distances from
+         */
+        SoundDistance(String word) {
+            this.word = new char[word.length()];
+            this.wordEndings = new int[word.length() + 1];
+            lowerCase(word, this.word, this.wordEndings);
+        }
+
+        /**
+         * Returns the distance to the other word<br> Running Time(both best
+         * and worst case): Big Theta(product of the lengths)
+         *
+         * @param otherWord The other word
+         * @return Cost of the cheapest edits turning the word into the other
+         */
+        int to(String otherWord) {
+            int n = word.length;
+            int m = otherWord.length();
+            if (other.length < m) {
+                other = new char[Math.max(m, other.length * 2)];
+                otherEndings = new int[other.length + 1];
+            }
+            lowerCase(otherWord, other, otherEndings);
+            int width = m + 1;
+            if (cost.length < (n + 1) * width) {
+                cost = new int[(n + 1) * width];
+            }
+
+            for (int j = 0; j <= m; j++) {
+                cost[j] = 2 * j;
+            }
+            for (int i = 1; i <= n; i++) {
+                int row = i * width;
+                cost[row] = 2 * i;
+                char a = word[i - 1];
+                for (int j = 1; j <= m; j++) {
+                    char b = other[j - 1];
+                    int best = Math.min(cost[row - width + j - 1] + (a == b ? 0 : 2), Math.min(cost[row - width + j], cost[row + j - 1]) + 2);
+                    if (i > 1 && j > 1 && a == other[j - 2] && word[i - 2] == b) {
+                        best = Math.min(best, cost[row - 2 * width + j - 2] + 2);
+                    }
+                    if (wordEndings[i] != 0 && otherEndings[j] != 0) {
+                        // Swap a spelling ending here in the word for one it
+                        // sounds like ending here in the other word
+                        for (int x = wordEndings[i]; x != 0; x &= x - 1) {
+                            int xs = Integer.numberOfTrailingZeros(x);
+                            for (int y = PARTNERS[xs] & otherEndings[j]; y != 0; y &= y - 1) {
+                                int ys = Integer.numberOfTrailingZeros(y);
+                                best = Math.min(best, cost[(i - SPELLINGS.get(xs).length()) * width + j - SPELLINGS.get(ys).length()] + 1);
+                            }
+                        }
+                    }
+                    cost[row + j] = best;
+                }
+            }
+            return cost[n * width + m];
+        }
+
+        /**
+         * Copies the word in lower case, and notes for each prefix of it the
+         * mask of the spellings in SOUNDS_ALIKE it ends with
+         *
+         * @param word The word
+         * @param letters Array to copy the word into
+         * @param endings Array to note the masks in, by length of the prefix
+         */
+        private static void lowerCase(String word, char[] letters, int[] endings) {
+            endings[0] = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = Character.toLowerCase(word.charAt(i));
+                letters[i] = c;
+                int mask = 0;
+                if (c >= 'a' && c <= 'z') {
+                    for (int s = ENDING_IN[c - 'a']; s != 0; s &= s - 1) {
+                        int spelling = Integer.numberOfTrailingZeros(s);
+                        if (endsWith(letters, i + 1, SPELLINGS.get(spelling))) {
+                            mask |= 1 << spelling;
+                        }
+                    }
+                }
+                endings[i + 1] = mask;
+            }
+        }
+
+        /**
+         * Returns true if the first length letters end with the spelling
+         *
+         * @param letters The letters
+         * @param length Number of letters to look at
+         * @param spelling The spelling
+         * @return True if they end with it
+         */
+        private static boolean endsWith(char[] letters, int length, String spelling) {
+            int start = length - spelling.length();
+            if (start < 0) {
+                return false;
+            }
+            for (int k = 0; k < spelling.length(); k++) {
+                if (letters[start + k] != spelling.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
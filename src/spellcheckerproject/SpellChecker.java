@@ -1,42 +1,416 @@
 package spellcheckerproject;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Scanner;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import redblacktreeproject.RedBlackTree;
 
 /**
  * Implementation of a spell checker daemon that checks if the provided word is
- * correct and provides a closest word otherwise
+ * correct and provides a closest word otherwise. An instance is safe to share
+ * between threads, which is also the only way to serve a tenant from several
+ * threads, since its word log can only be opened once
  *
  * @author vravuri
  */
 public class SpellChecker {
 
-    private RedBlackTree wordList;
+    /**
+     * Outcome of a spell check
+     */
+    public enum Result {
 
+        /**
+         * The word is in the dictionary
+         */
+        FOUND,
+        /**
+         * The word is not in the dictionary
+         */
+        MISSING,
+        /**
+         * The word falls in a range of the dictionary that has not been loaded
+         * yet
+         */
+        UNKNOWN
+    }
     /**
-     * Constructor that loads the list of words into memory
+     * Order in which the word files are sorted: case-insensitive, with ties
+     * broken by the natural String order
+     */
+    public static final Comparator<String> DICTIONARY_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int result = a.compareToIgnoreCase(b);
+            return result != 0 ? result : a.compareTo(b);
+        }
+    };
+    /**
+     * Number of sound-alikes shown for a misspelt word
+     */
+    public static final int SOUND_ALIKES_SHOWN = 10;
+    private static BaseDictionary sharedBase;
+    private final BaseDictionary base;
+    private final RedBlackTree overlay;
+    private final PhoneticIndex overlaySoundAlikes;
+    /**
+     * Guards the tenant's word tree and phonetic index, which are not safe for
+     * a writer running alongside anything else
+     */
+    private final ReadWriteLock overlayLock = new ReentrantReadWriteLock();
+    private final WordLog wordLog;
+    private final String tenant;
+    private final ThreadLocal<int[]> recentCompares = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * Constructor for the default tenant
      *
      * @throws FileNotFoundException
      * @throws IOException
      */
     public SpellChecker() throws FileNotFoundException, IOException {
-        BufferedReader in = new BufferedReader(new FileReader(SpellChecker.class.getResource("shortwords.txt").toString().substring(6)));
+        this("default");
+    }
+
+    /**
+     * Constructor that layers the tenant's own words over the shared base
+     * dictionary. The base is loaded once, in the background, and shared by
+     * every tenant, so each tenant only costs its own words. The tenant's words
+     * are read from its word log in the directory named by the spellchecker.dir
+     * system property. The first time the default tenant is opened, it takes
+     * over the words added before there were tenants
+     *
+     * @param tenant Name of the tenant, made of letters, digits, '-' and '_'
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    public SpellChecker(String tenant) throws FileNotFoundException, IOException {
+        if (!tenant.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid tenant name \"" + tenant + "\"");
+        }
+        this.tenant = tenant;
+        this.base = sharedBase();
+        this.overlay = new RedBlackTree();
+        this.overlaySoundAlikes = new PhoneticIndex();
+        File dataDir = new File(System.getProperty("spellchecker.dir", "data"));
+        this.wordLog = new WordLog(dataDir, tenant);
+        boolean opened = false;
+        try {
+            if (tenant.equals("default")) {
+                migrateLegacyWords(dataDir, wordLog);
+            }
+
+            // The overlay only holds the tenant's delta, so it is loaded up front
+            String word;
+            try (BufferedReader in = wordLog.openBase()) {
+                while ((word = in.readLine()) != null) {
+                    overlay.insert(word);
+                    overlaySoundAlikes.add(word);
+                }
+            }
+            for (String added : wordLog.entries()) {
+                if (!overlay.contains(added)) {
+                    overlay.insert(added);
+                    overlaySoundAlikes.add(added);
+                }
+            }
+            wordLog.enableCompaction();
+            opened = true;
+        } finally {
+            if (!opened) {
+                // Release the log, so that the tenant can be opened again
+                wordLog.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the base dictionary shared by all tenants, starting to load it on
+     * first use. The word file is named by the spellchecker.words system
+     * property
+     *
+     * @return The shared base dictionary
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    private static synchronized BaseDictionary sharedBase() throws FileNotFoundException, IOException {
+        if (sharedBase == null) {
+            sharedBase = new BaseDictionary(openWordFile());
+        }
+        return sharedBase;
+    }
+
+    /**
+     * Opens the base word file named by the spellchecker.words system property
+     *
+     * @return Reader over the base word file
+     * @throws FileNotFoundException
+     */
+    private static BufferedReader openWordFile() throws FileNotFoundException {
+        String wordFile = System.getProperty("spellchecker.words", "shortwords.txt");
+        InputStream words = SpellChecker.class.getResourceAsStream(wordFile);
+        if (words == null) {
+            throw new FileNotFoundException(wordFile);
+        }
+        return new BufferedReader(new InputStreamReader(words, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Moves the words added before there were tenants into the default
+     * tenant's log. Those were kept in words.log and its compacted words.txt,
+     * which holds the whole dictionary, so only the words missing from the base
+     * word file are taken. The old files are renamed to *.migrated afterwards,
+     * and running again after a crash only repeats words already taken
+     *
+     * @param dataDir Directory holding the word logs
+     * @param target Log of the default tenant
+     * @throws IOException
+     */
+    private static void migrateLegacyWords(File dataDir, WordLog target) throws IOException {
+        File legacyLog = new File(dataDir, "words.log");
+        File legacyBase = new File(dataDir, "words.txt");
+        if (!legacyLog.exists() && !legacyBase.exists()) {
+            return;
+        }
+
+        Set<String> known = new HashSet<>();
         String word;
-        int wordCount = 0;
-        wordList = new RedBlackTree();
-        while ((word = in.readLine()) != null) {
-            wordList.insert(word);
-            wordCount++;
+        try (BufferedReader in = openWordFile()) {
+            while ((word = in.readLine()) != null) {
+                known.add(word);
+            }
+        }
+
+        List<String> added = new ArrayList<>();
+        WordLog legacy = new WordLog(dataDir, "words");
+        try (BufferedReader in = legacy.openBase()) {
+            while ((word = in.readLine()) != null) {
+                if (known.add(word)) {
+                    added.add(word);
+                }
+            }
+            for (String entry : legacy.entries()) {
+                if (known.add(entry)) {
+                    added.add(entry);
+                }
+            }
+        } finally {
+            legacy.close();
+        }
+
+        target.appendAll(added);
+        for (File legacyFile : new File[]{legacyLog, legacyBase}) {
+            if (legacyFile.exists()) {
+                Files.move(legacyFile.toPath(), new File(legacyFile.getPath() + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        System.out.println("Moved " + added.size() + " words added before tenants to the default tenant");
+    }
+
+    /**
+     * Returns the name of the tenant whose words are layered over the base
+     *
+     * @return Name of the tenant
+     */
+    public String getTenant() {
+        return this.tenant;
+    }
+
+    /**
+     * Returns true once the shared base dictionary has been loaded<br> Running
+     * Time(both best and worst case): Big Theta(1)
+     *
+     * @return True if loading has finished, false otherwise
+     */
+    public boolean isLoaded() {
+        return base.isLoaded();
+    }
+
+    /**
+     * Blocks until the shared base dictionary has been loaded
+     *
+     * @throws InterruptedException
+     * @throws IOException If the load stopped early
+     */
+    public void awaitLoaded() throws InterruptedException, IOException {
+        base.awaitLoaded();
+    }
+
+    /**
+     * Checks whether the word is in the dictionary, looking in the base first
+     * and then in the tenant's words. While the base is still loading, a word
+     * that is in neither and falls in the part of the base not yet loaded is
+     * reported as UNKNOWN<br> Running Time(best case): Big Theta(1)<br> Running
+     * Time(worst case): Big Theta(log n)<br>
+     *
+     * @param word The word to check
+     * @return FOUND, MISSING or UNKNOWN
+     */
+    public Result check(String word) {
+        int[] compares = recentCompares.get();
+        Result result = base.check(word);
+        compares[0] = base.getRecentCompares();
+        if (result == Result.FOUND) {
+            return result;
+        }
+
+        int found;
+        overlayLock.readLock().lock();
+        try {
+            found = overlay.search(word);
+        } finally {
+            overlayLock.readLock().unlock();
         }
+        compares[0] += Math.abs(found);
+        return found > 0 ? Result.FOUND : result;
+    }
 
-        System.out.println("Red Black Tree loaded with " + wordCount + " words");
-        System.out.println("The height of the tree is " + wordList.height());
-        System.out.println("2 * log(n + 1)" + (2 * Math.log(wordCount + 1)));
-        printUsage();
+    /**
+     * Returns the word closest to the given word, taking the neighbours found
+     * in the base and in the tenant's words and keeping the one sharing the
+     * longest prefix with it<br> Running Time(best case): Big Theta(1)<br>
+     * Running Time(worst case): Big Theta(log n)<br>
+     *
+     * @param word The word to search close by for
+     * @return The closest word loaded so far, or null if none is loaded
+     */
+    public String closeBy(String word) {
+        String fromBase = base.closeBy(word);
+        String fromOverlay;
+        overlayLock.readLock().lock();
+        try {
+            fromOverlay = overlay.closeBy(word);
+        } finally {
+            overlayLock.readLock().unlock();
+        }
+
+        if (fromOverlay == null) {
+            return fromBase;
+        } else if (fromBase == null || fromOverlay.equals(word)) {
+            return fromOverlay;
+        } else if (commonPrefix(fromOverlay, word) > commonPrefix(fromBase, word)) {
+            return fromOverlay;
+        }
+        return fromBase;
+    }
+
+    /**
+     * Returns the words that sound like the given word, closest spelling
+     * first. Each layer answers with one lookup in its phonetic index, and only
+     * the words found there are ranked, by PhoneticIndex.rank()<br> Running
+     * Time: Big Theta(k log k) for k sound-alikes
+     *
+     * @param word The word to find sound-alikes for
+     * @return Words with the same phonetic code, closest to the word first
+     */
+    public List<String> soundsLike(String word) {
+        // A word can be in both layers, but is listed once
+        Set<String> layers = new LinkedHashSet<>(base.soundsLike(word));
+        overlayLock.readLock().lock();
+        try {
+            layers.addAll(overlaySoundAlikes.soundsLike(word));
+        } finally {
+            overlayLock.readLock().unlock();
+        }
+        List<String> soundAlikes = new ArrayList<>(layers);
+
+        PhoneticIndex.rank(word, soundAlikes);
+        return soundAlikes;
+    }
+
+    /**
+     * Returns the length of the common prefix of two words<br> Running
+     * Time(worst case): Big Theta(length of the shorter word)
+     *
+     * @param a First word
+     * @param b Second word
+     * @return Number of leading characters the words share
+     */
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the comparisons made by the calling thread's most recent check,
+     * across both layers<br> Running Time(both best and worst case): Big
+     * Theta(1)
+     *
+     * @return Number of comparisons made in the last call on check()
+     */
+    public int getRecentCompares() {
+        return recentCompares.get()[0];
+    }
+
+    /**
+     * Adds the word to the tenant's words and appends it to the tenant's word
+     * log. The word is logged before it is visible, and outside the lock, so
+     * that adds from several threads share a sync. The shared base is never
+     * modified<br> Running Time(best case): Big
+     * Theta(1)<br> Running Time(worst case): Big Theta(log m) for m words of
+     * the tenant<br>
+     *
+     * @param word The word to add
+     * @throws IOException
+     */
+    public void add(String word) throws IOException {
+        wordLog.append(word);
+        overlayLock.writeLock().lock();
+        try {
+            overlay.insert(word);
+            overlaySoundAlikes.add(word);
+        } finally {
+            overlayLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the tenant's word log. Every add that has returned is already on
+     * disk
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        wordLog.close();
+    }
+
+    /**
+     * Prints the entire base word tree and then the tenant's word tree in
+     * level order
+     */
+    public void print() {
+        base.print();
+        System.out.println("Words of tenant " + tenant + ":");
+        overlayLock.readLock().lock();
+        try {
+            overlay.levelOrderTraversal();
+        } finally {
+            overlayLock.readLock().unlock();
+        }
     }
 
     /**
@@ -47,10 +421,11 @@ public class SpellChecker {
      */
     public static void main(String[] args) throws FileNotFoundException, IOException {
         SpellChecker sCheck = new SpellChecker();
+        sCheck.printUsage();
 
         Scanner in = new Scanner(System.in);
         String input;
-        
+
         // Run the spell checker infinitely until user wishes to exit
         while (true) {
             System.out.print("> ");
@@ -60,25 +435,60 @@ public class SpellChecker {
             if (input == null || input.length() == 0) {
                 continue;
             }
-            
+
             // For each option, its corresponding action is taken
             if (input.equals("p")) {
                 System.out.println("Level Order Traversal:");
-                sCheck.wordList.levelOrderTraversal();
+                sCheck.print();
                 continue;
             } else if (input.equals("!")) {
+                sCheck.close();
                 System.out.println("Bye !");
                 return;
             } else if (input.startsWith("c ")) {
-                if (sCheck.wordList.contains(input.substring(2))) {
-                    System.out.println("Found " + sCheck.wordList.closeBy(input.substring(2)) + " after " + sCheck.wordList.getRecentCompares() + " comparisons");
+                Result result = sCheck.check(input.substring(2));
+                if (result == Result.FOUND) {
+                    System.out.println("Found " + input.substring(2) + " after " + sCheck.getRecentCompares() + " comparisons");
+                } else if (result == Result.UNKNOWN) {
+                    System.out.println("The word \"" + input.substring(2) + "\" is unknown, that part of the dictionary is not loaded yet");
                 } else {
-                    System.out.println("The word \"" + input.substring(2) + "\" is not present in dictionary. Perhaps you mean " + sCheck.wordList.closeBy(input.substring(2)));
+                    System.out.println("The word \"" + input.substring(2) + "\" is not present in dictionary. Perhaps you mean " + sCheck.closeBy(input.substring(2)));
+                    List<String> soundAlikes = sCheck.soundsLike(input.substring(2));
+                    if (!soundAlikes.isEmpty()) {
+                        System.out.println("It sounds like " + soundAlikes.subList(0, Math.min(SOUND_ALIKES_SHOWN, soundAlikes.size())));
+                    }
+                }
+                continue;
+            } else if (input.startsWith("t ")) {
+                if (input.substring(2).equals(sCheck.getTenant())) {
+                    System.out.println("Already using the dictionary of tenant " + sCheck.getTenant());
+                    continue;
+                }
+                // A different tenant has its own log, so the new one can be
+                // opened before the old one is closed, and the old one stays
+                // in use if the new one fails to open
+                SpellChecker switched;
+                try {
+                    switched = new SpellChecker(input.substring(2));
+                } catch (IllegalArgumentException | IOException e) {
+                    System.out.println("Cannot switch tenant: " + e.getMessage());
+                    continue;
                 }
+                try {
+                    sCheck.close();
+                } catch (IOException e) {
+                    System.out.println("The word log of tenant " + sCheck.getTenant() + " failed: " + e.getMessage());
+                }
+                sCheck = switched;
+                System.out.println("Switched to the dictionary of tenant " + sCheck.getTenant());
                 continue;
             } else if (input.startsWith("a ")) {
-                sCheck.wordList.insert(input.substring(2));
-                System.out.println("The word \"" + input.substring(2) + "\" has been added to the dictionary");
+                try {
+                    sCheck.add(input.substring(2));
+                    System.out.println("The word \"" + input.substring(2) + "\" has been added to the dictionary");
+                } catch (IOException e) {
+                    System.out.println("The word \"" + input.substring(2) + "\" could not be logged: " + e.getMessage());
+                }
                 continue;
             } else {
                 System.out.println("Invalid option");
@@ -95,5 +505,6 @@ public class SpellChecker {
         System.out.println("<!> to quit");
         System.out.println("<c> <word> to spell check this word");
         System.out.println("<a> <word> add word to tree");
+        System.out.println("<t> <tenant> switch to the tenant's dictionary");
     }
 }
@@ -0,0 +1,421 @@
+package spellcheckerproject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Append-only log of the words added at runtime, kept next to a sorted base
+ * word file. Appends are group committed: an append returns once its entry is
+ * on disk, and appends that arrive while a sync is in progress share the next
+ * one. Adds from several threads are therefore synced in batches without a
+ * timed window adding latency, while a single caller syncs each append, or
+ * each call of appendAll. Once the log grows large enough it is merged into a
+ * new base file
+ *
+ * @author vravuri
+ */
+public class WordLog {
+
+    private static final int COMPACT_THRESHOLD = 10000;
+    /**
+     * One thread compacts the logs of every tenant, and only runs when a log
+     * has grown past the threshold
+     */
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread compactor = new Thread(task, "word-log-compactor");
+            compactor.setDaemon(true);
+            return compactor;
+        }
+    });
+    private final File baseFile;
+    private final File logFile;
+    private final RandomAccessFile log;
+    private final Writer out;
+    private long written;
+    private long synced;
+    private boolean syncing;
+    private IOException failure;
+    private int logged;
+    private boolean compactionEnabled;
+    private boolean compactionScheduled;
+    private boolean closed;
+
+    /**
+     * Constructor. Opens (or creates) the log named name.log in the data
+     * directory, dropping any partially written last entry. The log is locked,
+     * so a second writer, in this process or another, fails instead of
+     * overwriting it
+     *
+     * @param dataDir Directory holding the base and log files
+     * @param name Name of the base and log files, without extension
+     * @throws IOException
+     */
+    public WordLog(File dataDir, String name) throws IOException {
+        if (!dataDir.isDirectory() && !dataDir.mkdirs()) {
+            throw new IOException("Cannot create data directory " + dataDir);
+        }
+        this.baseFile = new File(dataDir, name + ".txt");
+        this.logFile = new File(dataDir, name + ".log");
+        this.log = new RandomAccessFile(logFile, "rw");
+        FileLock lock;
+        try {
+            lock = log.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            log.close();
+            throw new IOException("Word log " + logFile + " is already open for writing");
+        }
+
+        // A crash in the middle of a write leaves an entry without its line
+        // break. Cut it off so it is neither replayed nor glued to the next one
+        byte[] contents = readLog();
+        int end = contents.length;
+        while (end > 0 && contents[end - 1] != '\n') {
+            end--;
+        }
+        for (int i = 0; i < end; i++) {
+            if (contents[i] == '\n') {
+                logged++;
+            }
+        }
+        log.setLength(end);
+        log.seek(end);
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(log.getFD()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens the current base word file, which is the last compacted base. The
+     * base is empty until the log is first compacted
+     *
+     * @return Reader over the base word file
+     * @throws IOException
+     */
+    public BufferedReader openBase() throws IOException {
+        if (baseFile.exists()) {
+            return new BufferedReader(new InputStreamReader(new FileInputStream(baseFile), StandardCharsets.UTF_8));
+        }
+        return new BufferedReader(new StringReader(""));
+    }
+
+    /**
+     * Returns the words in the log, in the order they were added<br> Running
+     * Time(both best and worst case): Big Theta(n)
+     *
+     * @return Words in the log
+     * @throws IOException
+     */
+    public synchronized List<String> entries() throws IOException {
+        out.flush();
+        List<String> words = new ArrayList<>();
+        String contents = new String(readLog(), StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        while ((end = contents.indexOf('\n', start)) >= 0) {
+            words.add(contents.substring(start, end));
+            start = end + 1;
+        }
+        return words;
+    }
+
+    /**
+     * Reads the whole log through the locked handle. Opening the file again
+     * would fail where file locks are mandatory, as on Windows. The reads are
+     * positional, so they leave the position the writer appends at alone
+     *
+     * @return Contents of the log
+     * @throws IOException
+     */
+    private byte[] readLog() throws IOException {
+        FileChannel channel = log.getChannel();
+        ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+        while (contents.hasRemaining()) {
+            if (channel.read(contents, contents.position()) < 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(contents.array(), contents.position());
+    }
+
+    /**
+     * Appends the word to the log and returns once it is on disk. If another
+     * append is syncing, this one waits and is committed with the next sync
+     * together with every entry written in the meantime<br> Running Time(best
+     * case): Big Theta(1) plus one sync
+     *
+     * @param word Word to be appended
+     * @throws IOException If the entry, or an earlier one, could not be written
+     */
+    public void append(String word) throws IOException {
+        appendAll(Collections.singletonList(word));
+    }
+
+    /**
+     * Appends the words to the log and returns once they are on disk, with a
+     * single sync for all of them<br> Running Time: Big Theta(n) plus one sync
+     *
+     * @param words Words to be appended
+     * @throws IOException If the entries, or an earlier one, could not be
+     * written
+     */
+    public void appendAll(List<String> words) throws IOException {
+        long entry;
+        synchronized (this) {
+            checkOpen();
+            try {
+                for (String word : words) {
+                    out.write(word);
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            written += words.size();
+            entry = written;
+            logged += words.size();
+            scheduleCompaction();
+        }
+        awaitSynced(entry);
+    }
+
+    /**
+     * Waits until the entry is on disk. The first waiter to find no sync in
+     * progress leads the next one, covering every entry written so far
+     *
+     * @param entry Sequence number of the entry
+     * @throws IOException If the sync failed
+     */
+    private void awaitSynced(long entry) throws IOException {
+        long target;
+        synchronized (this) {
+            while (synced < entry && syncing && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the word log");
+                }
+            }
+            checkFailure();
+            if (synced >= entry) {
+                return;
+            }
+
+            syncing = true;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failSync(e);
+                throw e;
+            }
+            target = written;
+        }
+
+        // Sync outside the lock, so that the next group can gather meanwhile
+        try {
+            log.getFD().sync();
+        } catch (IOException e) {
+            synchronized (this) {
+                failSync(e);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            syncing = false;
+            synced = Math.max(synced, target);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Records a failed sync. Every later append fails with it, since what
+     * reached the disk is no longer known
+     *
+     * @param e The failure
+     */
+    private void failSync(IOException e) {
+        failure = e;
+        syncing = false;
+        notifyAll();
+    }
+
+    /**
+     * Throws if the log is closed or an earlier write failed
+     *
+     * @throws IOException
+     */
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Word log is closed");
+        }
+        checkFailure();
+    }
+
+    /**
+     * Throws if an earlier write failed
+     *
+     * @throws IOException
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Word log " + logFile + " failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Allows the log to be compacted once it reaches COMPACT_THRESHOLD
+     * entries. Called once nothing is reading the base file any more
+     */
+    public synchronized void enableCompaction() {
+        compactionEnabled = true;
+        scheduleCompaction();
+    }
+
+    /**
+     * Hands the log to the shared compactor if it has grown past the threshold
+     * and is not already waiting for it
+     */
+    private void scheduleCompaction() {
+        if (!compactionEnabled || compactionScheduled || logged < COMPACT_THRESHOLD) {
+            return;
+        }
+        compactionScheduled = true;
+        COMPACTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    System.out.println("Word log compaction failed: " + e.getMessage());
+                } finally {
+                    synchronized (WordLog.this) {
+                        compactionScheduled = false;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Merges the log into a new sorted base file and empties the log. The new
+     * base replaces the old one atomically, and replaying a log that was merged
+     * just before a crash only repeats words already in the base<br> Running
+     * Time: Big Theta(n + m log m) for a base of n words and a log of m words
+     *
+     * @throws IOException
+     */
+    public synchronized void compact() throws IOException {
+        if (closed) {
+            return;
+        }
+        checkFailure();
+        while (syncing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the word log");
+            }
+        }
+        List<String> added = entries();
+        Collections.sort(added, SpellChecker.DICTIONARY_ORDER);
+
+        File tempFile = new File(baseFile.getPath() + ".tmp");
+        try (BufferedReader base = openBase();
+                FileOutputStream tempStream = new FileOutputStream(tempFile);
+                BufferedWriter temp = new BufferedWriter(new OutputStreamWriter(tempStream, StandardCharsets.UTF_8))) {
+            String word = base.readLine();
+            String previous = null;
+            int next = 0;
+
+            // Standard two-way merge, dropping logged words that are already
+            // in the base or were logged more than once
+            while (word != null || next < added.size()) {
+                String candidate;
+                if (next >= added.size() || (word != null && SpellChecker.DICTIONARY_ORDER.compare(word, added.get(next)) <= 0)) {
+                    candidate = word;
+                    word = base.readLine();
+                } else {
+                    candidate = added.get(next++);
+                }
+                if (!candidate.equals(previous)) {
+                    temp.write(candidate);
+                    temp.write('\n');
+                    previous = candidate;
+                }
+            }
+            temp.flush();
+            tempStream.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), baseFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Every entry written so far is now in the synced base
+        try {
+            log.setLength(0);
+            log.getFD().sync();
+        } catch (IOException e) {
+            failure = e;
+            notifyAll();
+            throw e;
+        }
+        synced = written;
+        logged = 0;
+        notifyAll();
+    }
+
+    /**
+     * Closes the log. Every entry appended has already been synced
+     *
+     * @throws IOException If an earlier write failed
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (syncing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            out.close();
+        } finally {
+            // Closing the file also releases the lock
+            log.close();
+        }
+        checkFailure();
+    }
+}